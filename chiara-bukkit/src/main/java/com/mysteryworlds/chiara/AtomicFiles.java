@@ -0,0 +1,82 @@
+package com.mysteryworlds.chiara;
+
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes files so readers and crashes never observe a partially written file.
+ * The content goes to a temporary file next to the target first and is forced
+ * to disk, afterwards the temporary file replaces the target in a single move.
+ */
+public final class AtomicFiles {
+  private AtomicFiles() {
+  }
+
+  /**
+   * Replace the content of a file atomically.
+   *
+   * @param path    Target file.
+   * @param content New content.
+   * @throws IOException If writing or moving the file fails. The target keeps
+   *                     its previous content in that case.
+   */
+  public static void writeString(Path path, String content)
+    throws IOException {
+    Preconditions.checkNotNull(content);
+    write(path, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Replace the content of a file atomically.
+   *
+   * @param path    Target file.
+   * @param content New content.
+   * @throws IOException If writing or moving the file fails. The target keeps
+   *                     its previous content in that case.
+   */
+  public static void write(Path path, byte[] content) throws IOException {
+    Preconditions.checkNotNull(path);
+    Preconditions.checkNotNull(content);
+    var absolutePath = path.toAbsolutePath();
+    var tempFile = Files.createTempFile(
+      absolutePath.getParent(),
+      absolutePath.getFileName().toString(),
+      ".tmp"
+    );
+    try {
+      writeAndForce(tempFile, content);
+      move(tempFile, absolutePath);
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
+  }
+
+  private static void writeAndForce(Path path, byte[] content)
+    throws IOException {
+    try (var channel = FileChannel.open(path, StandardOpenOption.WRITE,
+      StandardOpenOption.TRUNCATE_EXISTING)) {
+      var buffer = ByteBuffer.wrap(content);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(true);
+    }
+  }
+
+  private static void move(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+}
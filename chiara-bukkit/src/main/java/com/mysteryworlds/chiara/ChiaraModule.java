@@ -6,14 +6,20 @@ import com.fasterxml.jackson.dataformat.yaml.YAMLGenerator.Feature;
 import com.mysteryworlds.chiara.group.GroupConfig;
 import com.mysteryworlds.chiara.user.PermissionUserSessionRegistry;
 import com.mysteryworlds.chiara.user.UserConfig;
+import com.mysteryworlds.chiara.user.UserNamesConfig;
+import com.mysteryworlds.chiara.user.UsersFolder;
 import com.mysteryworlds.chiara.vault.VaultChat;
 import com.mysteryworlds.chiara.vault.VaultPermissions;
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import net.milkbowl.vault.chat.Chat;
@@ -23,11 +29,14 @@ import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.PluginManager;
 import org.bukkit.plugin.ServicesManager;
+import org.bukkit.scheduler.BukkitScheduler;
 
 public final class ChiaraModule extends AbstractModule {
   private static final String PLUGIN_CONFIG = "config.yml";
   private static final String GROUP_CONFIG = "groups.yml";
   private static final String USERS_CONFIG = "users.yml";
+  private static final String USER_NAMES_CONFIG = "names.yml";
+  private static final String USERS_FOLDER = "users";
   private final Plugin plugin;
 
   private ChiaraModule(Plugin plugin) {
@@ -45,6 +54,7 @@ public final class ChiaraModule extends AbstractModule {
     bind(PluginManager.class).toInstance(plugin.getServer().getPluginManager());
     bind(ServicesManager.class)
       .toInstance(plugin.getServer().getServicesManager());
+    bind(BukkitScheduler.class).toInstance(plugin.getServer().getScheduler());
     bind(Permission.class).to(VaultPermissions.class);
     bind(Chat.class).to(VaultChat.class);
   }
@@ -63,6 +73,20 @@ public final class ChiaraModule extends AbstractModule {
     return Paths.get(plugin.getDataFolder().getPath(), USERS_CONFIG);
   }
 
+  @Provides
+  @Singleton
+  @UsersFolder
+  Path provideUsersFolder() {
+    return Paths.get(plugin.getDataFolder().getPath(), USERS_FOLDER);
+  }
+
+  @Provides
+  @Singleton
+  @UserNamesConfig
+  Path provideUserNamesPath() {
+    return Paths.get(plugin.getDataFolder().getPath(), USER_NAMES_CONFIG);
+  }
+
   @Provides
   @Singleton
   PermissionUserSessionRegistry provideSessionRegistry() {
@@ -99,4 +123,78 @@ public final class ChiaraModule extends AbstractModule {
   ) {
     return configuration.getString("default-group");
   }
+
+  @Provides
+  @Singleton
+  @Named("asyncExecutor")
+  Executor provideAsyncExecutor(BukkitScheduler scheduler) {
+    return task -> scheduler.runTaskAsynchronously(plugin, task);
+  }
+
+  @Provides
+  @Singleton
+  @Named("mainThreadExecutor")
+  Executor provideMainThreadExecutor(BukkitScheduler scheduler) {
+    return task -> {
+      if (plugin.isEnabled()) {
+        scheduler.runTask(plugin, task);
+      }
+    };
+  }
+
+  /**
+   * Single background thread for writing configs. Saves run one after another
+   * in submission order and, unlike bukkit tasks, can still be awaited while
+   * the plugin is disabled.
+   */
+  @Provides
+  @Singleton
+  @Named("saveExecutor")
+  ExecutorService provideSaveExecutorService() {
+    return Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+      .setNameFormat("chiara-save-%d")
+      .setDaemon(true)
+      .build());
+  }
+
+  @Provides
+  @Singleton
+  @Named("saveExecutor")
+  Executor provideSaveExecutor(
+    @Named("saveExecutor") ExecutorService saveExecutorService
+  ) {
+    return saveExecutorService;
+  }
+
+  @Provides
+  @Singleton
+  @Named("recalculationInterval")
+  long provideRecalculationInterval(
+    @PluginConfig Configuration configuration
+  ) {
+    return configuration.getLong("recalculation-interval", 1);
+  }
+
+  @Provides
+  @Singleton
+  @Named("offlineUserCacheSize")
+  long provideOfflineUserCacheSize(
+    @PluginConfig Configuration configuration
+  ) {
+    return configuration.getLong("offline-user-cache-size", 1000);
+  }
+
+  @Provides
+  @Singleton
+  @Named("autosaveInterval")
+  long provideAutosaveInterval(@PluginConfig Configuration configuration) {
+    return configuration.getLong("autosave-interval", 6000);
+  }
+
+  @Provides
+  @Singleton
+  @Named("configSnapshots")
+  boolean provideConfigSnapshots(@PluginConfig Configuration configuration) {
+    return configuration.getBoolean("config-snapshots", true);
+  }
 }
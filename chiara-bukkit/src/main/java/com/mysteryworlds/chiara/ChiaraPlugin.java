@@ -2,12 +2,20 @@ package com.mysteryworlds.chiara;
 
 import com.mysteryworlds.chiara.group.PermissionGroupRepository;
 import com.mysteryworlds.chiara.permission.PermissionCommand;
+import com.mysteryworlds.chiara.user.PermissionCheckService;
+import com.mysteryworlds.chiara.user.PermissionInvalidationTrigger;
+import com.mysteryworlds.chiara.user.PermissionPersistenceTrigger;
 import com.mysteryworlds.chiara.user.PermissionUserRepository;
 import com.mysteryworlds.chiara.user.PermissionUserSessionFactory;
 import com.mysteryworlds.chiara.user.PermissionUserSessionRegistry;
 import com.mysteryworlds.chiara.user.PermissionUserSessionTrigger;
 import com.google.inject.Guice;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 import javax.inject.Inject;
+import javax.inject.Named;
 import net.milkbowl.vault.chat.Chat;
 import net.milkbowl.vault.permission.Permission;
 import org.bukkit.Bukkit;
@@ -16,6 +24,7 @@ import org.bukkit.plugin.PluginManager;
 import org.bukkit.plugin.ServicePriority;
 import org.bukkit.plugin.ServicesManager;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitScheduler;
 
 public final class ChiaraPlugin extends JavaPlugin {
   @Inject
@@ -31,14 +40,28 @@ public final class ChiaraPlugin extends JavaPlugin {
   @Inject
   private Chat vaultChat;
   @Inject
+  private PermissionCheckService permissionCheckService;
+  @Inject
   private PluginManager pluginManager;
   @Inject
   private ServicesManager servicesManager;
+  @Inject
+  private BukkitScheduler scheduler;
+  @Inject
+  @Named("saveExecutor")
+  private ExecutorService saveExecutor;
+  @Inject
+  @Named("autosaveInterval")
+  private long autosaveInterval;
 
   @Inject
   private PermissionCommand permissionCommand;
   @Inject
   private PermissionUserSessionTrigger sessionTrigger;
+  @Inject
+  private PermissionInvalidationTrigger invalidationTrigger;
+  @Inject
+  private PermissionPersistenceTrigger persistenceTrigger;
 
   @Override
   public void onEnable() {
@@ -50,12 +73,13 @@ public final class ChiaraPlugin extends JavaPlugin {
     registerListeners();
     registerVaultPermission();
     registerVaultChat();
+    registerPermissionCheckService();
     startUserSessions();
+    startAutosave();
   }
 
   private void saveDefaultResources() {
     saveDefaultConfig();
-    saveResource("users.yml", false);
     saveResource("groups.yml", false);
   }
 
@@ -80,6 +104,8 @@ public final class ChiaraPlugin extends JavaPlugin {
 
   private void registerListeners() {
     pluginManager.registerEvents(sessionTrigger, this);
+    pluginManager.registerEvents(invalidationTrigger, this);
+    pluginManager.registerEvents(persistenceTrigger, this);
   }
 
   private void registerVaultPermission() {
@@ -100,29 +126,69 @@ public final class ChiaraPlugin extends JavaPlugin {
     );
   }
 
+  private void registerPermissionCheckService() {
+    servicesManager.register(
+      PermissionCheckService.class,
+      permissionCheckService,
+      this,
+      ServicePriority.Normal
+    );
+  }
+
   private void startUserSessions() {
     Bukkit.getOnlinePlayers().forEach(this::startUserSession);
   }
 
   private void startUserSession(Player player) {
-    var user = userRepository.findOrCreateUser(player.getUniqueId());
+    userRepository.updateUserName(player.getUniqueId(), player.getName());
+    var user = userRepository.loadOnlineUser(player.getUniqueId());
     var session = sessionFactory.createSession(player, user);
     sessionRegistry.register(session);
   }
 
+  private void startAutosave() {
+    if (autosaveInterval <= 0) {
+      return;
+    }
+    scheduler.runTaskTimer(
+      this,
+      this::autosave,
+      autosaveInterval,
+      autosaveInterval
+    );
+  }
+
+  /**
+   * Persist the users and groups changed since the last autosave. Saving
+   * runs on the save executor, the main thread only hands the work over.
+   */
+  private void autosave() {
+    userRepository.autosave();
+    groupRepository.autosave();
+  }
+
   @Override
   public void onDisable() {
     closeUserSessions();
-    saveUsers();
-    saveGroups();
-  }
-
-  private void saveUsers() {
-    userRepository.save();
+    saveUsersAndGroups();
   }
 
-  private void saveGroups() {
-    groupRepository.save();
+  /**
+   * Save users and groups and wait for the pending saves, as the process may
+   * exit right after the plugin is disabled.
+   */
+  private void saveUsersAndGroups() {
+    CompletableFuture.allOf(userRepository.save(), groupRepository.save())
+      .join();
+    saveExecutor.shutdown();
+    try {
+      if (!saveExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+        getLogger().warning("Timed out waiting for pending saves");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      getLogger().log(Level.WARNING, "Interrupted waiting for saves", e);
+    }
   }
 
   private void closeUserSessions() {
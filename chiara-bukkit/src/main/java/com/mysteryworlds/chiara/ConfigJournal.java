@@ -0,0 +1,133 @@
+package com.mysteryworlds.chiara;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append only log of config documents next to a config file. Every append
+ * adds one YAML document holding only the changed entries, so persisting a
+ * few changes doesn't rewrite the whole config. Replaying the documents in
+ * order on top of the config restores the latest state, a full save of the
+ * config makes the journal obsolete.
+ *
+ * @param <T> Config document type.
+ */
+public final class ConfigJournal<T> {
+  private static final String JOURNAL_SUFFIX = ".journal";
+  private static final String DOCUMENT_START = "---\n";
+  private static final String DOCUMENT_END = "...\n";
+  private final Path path;
+  private final ObjectMapper objectMapper;
+  private final Class<T> documentType;
+
+  private ConfigJournal(
+    Path path,
+    ObjectMapper objectMapper,
+    Class<T> documentType
+  ) {
+    this.path = path;
+    this.objectMapper = objectMapper;
+    this.documentType = documentType;
+  }
+
+  /**
+   * Create the journal of a config file. The journal lives next to the
+   * config, named like the config with a {@code .journal} suffix.
+   *
+   * @param configPath   Config file.
+   * @param objectMapper Mapper used to write and read documents.
+   * @param documentType Document type.
+   * @param <T>          Document type.
+   * @return Journal.
+   */
+  public static <T> ConfigJournal<T> forConfig(
+    Path configPath,
+    ObjectMapper objectMapper,
+    Class<T> documentType
+  ) {
+    Preconditions.checkNotNull(configPath);
+    Preconditions.checkNotNull(objectMapper);
+    Preconditions.checkNotNull(documentType);
+    var path = configPath.resolveSibling(
+      configPath.getFileName() + JOURNAL_SUFFIX
+    );
+    return new ConfigJournal<>(path, objectMapper, documentType);
+  }
+
+  /**
+   * Append a document and force it to disk.
+   *
+   * @param document Document.
+   * @throws IOException If the document couldn't be written.
+   */
+  public void append(T document) throws IOException {
+    Preconditions.checkNotNull(document);
+    var content = objectMapper.writeValueAsString(document);
+    if (!content.endsWith("\n")) {
+      content += "\n";
+    }
+    content = DOCUMENT_START + content + DOCUMENT_END;
+    var buffer = ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+    try (var channel = FileChannel.open(path, StandardOpenOption.CREATE,
+      StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(true);
+    }
+  }
+
+  /**
+   * Read all documents in the order they were appended. Every document is
+   * closed by an end marker. A crash while appending can leave an incomplete
+   * last document without one, which is ignored and cut off, so later appends
+   * start on a clean document boundary.
+   *
+   * @return Documents.
+   * @throws IOException If the journal exists but can't be read.
+   */
+  public List<T> read() throws IOException {
+    List<T> documents = new ArrayList<>();
+    if (Files.notExists(path)) {
+      return documents;
+    }
+    var content = Files.readString(path);
+    var lastDocumentEnd = content.lastIndexOf(DOCUMENT_END);
+    content = lastDocumentEnd < 0
+      ? ""
+      : content.substring(0, lastDocumentEnd + DOCUMENT_END.length());
+    truncate(content.getBytes(StandardCharsets.UTF_8).length);
+    if (content.isEmpty()) {
+      return documents;
+    }
+    try (var iterator = objectMapper.readerFor(documentType)
+      .<T>readValues(content)) {
+      while (iterator.hasNext()) {
+        documents.add(iterator.next());
+      }
+    }
+    return documents;
+  }
+
+  private void truncate(long size) throws IOException {
+    try (var channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+      if (channel.size() > size) {
+        channel.truncate(size);
+        channel.force(true);
+      }
+    }
+  }
+
+  public void delete() throws IOException {
+    Files.deleteIfExists(path);
+  }
+}
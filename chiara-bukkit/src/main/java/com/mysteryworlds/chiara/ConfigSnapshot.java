@@ -0,0 +1,327 @@
+package com.mysteryworlds.chiara;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * Binary copy of a parsed config next to the config file, read instead of the
+ * config at startup as long as the config didn't change. The snapshot stores
+ * the checksum of the config it was created from and is ignored as soon as
+ * the checksum doesn't match anymore, e.g. after the config was edited by
+ * hand. Strings that repeat, like permission names, are stored once in a
+ * dictionary and referenced by their varint encoded index.
+ *
+ * @param <T> Config type.
+ */
+public final class ConfigSnapshot<T> {
+  private static final String SNAPSHOT_SUFFIX = ".snapshot";
+  private static final int MAGIC = 0x43485353;
+  private static final int STRING_VALUE = 0;
+  private static final int INT_VALUE = 1;
+  private static final int LONG_VALUE = 2;
+  private static final int DOUBLE_VALUE = 3;
+  private static final int BOOLEAN_VALUE = 4;
+  private static final int LIST_VALUE = 5;
+  private static final int MAP_VALUE = 6;
+  private final Path path;
+  private final int version;
+  private final Codec<T> codec;
+
+  private ConfigSnapshot(Path path, int version, Codec<T> codec) {
+    this.path = path;
+    this.version = version;
+    this.codec = codec;
+  }
+
+  /**
+   * Create the snapshot of a config file. The snapshot lives next to the
+   * config, named like the config with a {@code .snapshot} suffix.
+   *
+   * @param configPath Config file.
+   * @param version    Format version of the codec. Snapshots of other
+   *                   versions are ignored.
+   * @param codec      Codec of the config.
+   * @param <T>        Config type.
+   * @return Snapshot.
+   */
+  public static <T> ConfigSnapshot<T> forConfig(
+    Path configPath,
+    int version,
+    Codec<T> codec
+  ) {
+    Preconditions.checkNotNull(configPath);
+    Preconditions.checkNotNull(codec);
+    var path = configPath.resolveSibling(
+      configPath.getFileName() + SNAPSHOT_SUFFIX
+    );
+    return new ConfigSnapshot<>(path, version, codec);
+  }
+
+  /**
+   * Read the snapshot of the given config content.
+   *
+   * @param source Current content of the config.
+   * @return Config, empty if there is no snapshot, it belongs to a different
+   * config content or can't be read.
+   */
+  public Optional<T> read(byte[] source) {
+    Preconditions.checkNotNull(source);
+    if (Files.notExists(path)) {
+      return Optional.empty();
+    }
+    try (var input = new DataInputStream(
+      new ByteArrayInputStream(Files.readAllBytes(path))
+    )) {
+      if (input.readInt() != MAGIC
+        || input.readInt() != version
+        || input.readLong() != checksum(source)) {
+        return Optional.empty();
+      }
+      var dictionary = new String[input.readInt()];
+      for (var i = 0; i < dictionary.length; i++) {
+        dictionary[i] = input.readUTF();
+      }
+      return Optional.of(codec.read(new SnapshotReader(input, dictionary)));
+    } catch (IOException | RuntimeException e) {
+      e.printStackTrace();
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Write the snapshot of a config.
+   *
+   * @param source Content of the config the value was read from.
+   * @param value  Config.
+   * @throws IOException If the value can't be encoded or written.
+   */
+  public void write(byte[] source, T value) throws IOException {
+    Preconditions.checkNotNull(source);
+    Preconditions.checkNotNull(value);
+    var body = new ByteArrayOutputStream();
+    var writer = new SnapshotWriter(new DataOutputStream(body));
+    codec.write(value, writer);
+    var snapshot = new ByteArrayOutputStream(body.size() + 256);
+    try (var output = new DataOutputStream(snapshot)) {
+      output.writeInt(MAGIC);
+      output.writeInt(version);
+      output.writeLong(checksum(source));
+      output.writeInt(writer.dictionary.size());
+      for (var entry : writer.dictionary) {
+        output.writeUTF(entry);
+      }
+      body.writeTo(output);
+    }
+    AtomicFiles.write(path, snapshot.toByteArray());
+  }
+
+  private static long checksum(byte[] source) {
+    var checksum = new CRC32();
+    checksum.update(source);
+    return checksum.getValue();
+  }
+
+  /**
+   * Binary encoding of a config.
+   *
+   * @param <T> Config type.
+   */
+  public interface Codec<T> {
+    void write(T value, SnapshotWriter writer) throws IOException;
+
+    T read(SnapshotReader reader) throws IOException;
+  }
+
+  public static final class SnapshotWriter {
+    private final Map<String, Integer> dictionaryIndexes = Maps.newHashMap();
+    private final List<String> dictionary = new ArrayList<>();
+    private final DataOutputStream output;
+
+    private SnapshotWriter(DataOutputStream output) {
+      this.output = output;
+    }
+
+    public void writeVarInt(int value) throws IOException {
+      while ((value & ~0x7F) != 0) {
+        output.writeByte((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      output.writeByte(value);
+    }
+
+    /**
+     * Write a string through the dictionary. Use for strings that repeat.
+     *
+     * @param value String.
+     * @throws IOException If writing fails.
+     */
+    public void writeInterned(String value) throws IOException {
+      var index = dictionaryIndexes.get(value);
+      if (index == null) {
+        index = dictionary.size();
+        dictionary.add(value);
+        dictionaryIndexes.put(value, index);
+      }
+      writeVarInt(index);
+    }
+
+    public void writeString(String value) throws IOException {
+      var bytes = value.getBytes(StandardCharsets.UTF_8);
+      writeVarInt(bytes.length);
+      output.write(bytes);
+    }
+
+    public void writeBoolean(boolean value) throws IOException {
+      output.writeBoolean(value);
+    }
+
+    public void writeLong(long value) throws IOException {
+      output.writeLong(value);
+    }
+
+    public void writeDouble(double value) throws IOException {
+      output.writeDouble(value);
+    }
+
+    /**
+     * Write a config value together with its type. Lists and maps are written
+     * with their elements, in iteration order.
+     *
+     * @param value String, integer, long, double, boolean or a list or map of
+     *              these.
+     * @throws IOException If writing fails or a value has another type.
+     */
+    public void writeValue(Object value) throws IOException {
+      if (value instanceof String) {
+        writeVarInt(STRING_VALUE);
+        writeString((String) value);
+      } else if (value instanceof Integer) {
+        writeVarInt(INT_VALUE);
+        output.writeInt((Integer) value);
+      } else if (value instanceof Long) {
+        writeVarInt(LONG_VALUE);
+        writeLong((Long) value);
+      } else if (value instanceof Double) {
+        writeVarInt(DOUBLE_VALUE);
+        writeDouble((Double) value);
+      } else if (value instanceof Boolean) {
+        writeVarInt(BOOLEAN_VALUE);
+        writeBoolean((Boolean) value);
+      } else if (value instanceof List) {
+        var list = (List<?>) value;
+        writeVarInt(LIST_VALUE);
+        writeVarInt(list.size());
+        for (var element : list) {
+          writeValue(element);
+        }
+      } else if (value instanceof Map) {
+        var map = (Map<?, ?>) value;
+        writeVarInt(MAP_VALUE);
+        writeVarInt(map.size());
+        for (var entry : map.entrySet()) {
+          writeValue(entry.getKey());
+          writeValue(entry.getValue());
+        }
+      } else {
+        throw new IOException("Unsupported snapshot value: " + value);
+      }
+    }
+  }
+
+  public static final class SnapshotReader {
+    private final DataInputStream input;
+    private final String[] dictionary;
+
+    private SnapshotReader(DataInputStream input, String[] dictionary) {
+      this.input = input;
+      this.dictionary = dictionary;
+    }
+
+    public int readVarInt() throws IOException {
+      var value = 0;
+      for (var shift = 0; shift < 35; shift += 7) {
+        var read = input.readUnsignedByte();
+        value |= (read & 0x7F) << shift;
+        if ((read & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new IOException("Malformed varint");
+    }
+
+    public String readInterned() throws IOException {
+      return dictionary[readVarInt()];
+    }
+
+    public String readString() throws IOException {
+      var bytes = new byte[readVarInt()];
+      input.readFully(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public boolean readBoolean() throws IOException {
+      return input.readBoolean();
+    }
+
+    public long readLong() throws IOException {
+      return input.readLong();
+    }
+
+    public double readDouble() throws IOException {
+      return input.readDouble();
+    }
+
+    public Object readValue() throws IOException {
+      var type = readVarInt();
+      switch (type) {
+        case STRING_VALUE:
+          return readString();
+        case INT_VALUE:
+          return input.readInt();
+        case LONG_VALUE:
+          return readLong();
+        case DOUBLE_VALUE:
+          return readDouble();
+        case BOOLEAN_VALUE:
+          return readBoolean();
+        case LIST_VALUE:
+          return readList();
+        case MAP_VALUE:
+          return readMap();
+        default:
+          throw new IOException("Unknown snapshot value type: " + type);
+      }
+    }
+
+    private List<Object> readList() throws IOException {
+      var size = readVarInt();
+      List<Object> list = new ArrayList<>();
+      for (var i = 0; i < size; i++) {
+        list.add(readValue());
+      }
+      return list;
+    }
+
+    private Map<Object, Object> readMap() throws IOException {
+      var size = readVarInt();
+      Map<Object, Object> map = Maps.newLinkedHashMap();
+      for (var i = 0; i < size; i++) {
+        map.put(readValue(), readValue());
+      }
+      return map;
+    }
+  }
+}
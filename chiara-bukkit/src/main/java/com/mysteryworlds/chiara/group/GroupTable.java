@@ -1,12 +1,15 @@
 package com.mysteryworlds.chiara.group;
 
-import com.mysteryworlds.chiara.permission.PermissionTable;
+import com.mysteryworlds.chiara.permission.PermissionSnapshot;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 public final class GroupTable {
   private final List<PermissionGroup> groups;
@@ -15,29 +18,76 @@ public final class GroupTable {
     this.groups = groups;
   }
 
-  public PermissionTable calculateEffectivePermissions() {
-    var permissionTable = PermissionTable.empty();
+  public PermissionSnapshot calculateEffectivePermissions() {
+    List<PermissionSnapshot> groupPermissions = new ArrayList<>(groups.size());
     for (var group : groups) {
-      PermissionTable groupPermissions = group.calculateEffectivePermissions();
-      permissionTable = permissionTable.merge(groupPermissions);
+      groupPermissions.add(group.effectivePermissions());
     }
-    return permissionTable;
+    return PermissionSnapshot.mergeAll(groupPermissions);
   }
 
-  public PermissionTable calculateEffectivePermissions(String world) {
-    var permissionTable = PermissionTable.empty();
+  public PermissionSnapshot calculateEffectivePermissions(String world) {
+    List<PermissionSnapshot> groupPermissions = new ArrayList<>(groups.size());
     for (var group : groups) {
-      PermissionTable groupPermissions = group
-        .calculateEffectivePermissions(world);
-      permissionTable = permissionTable.merge(groupPermissions);
+      groupPermissions.add(group.effectivePermissions(world));
     }
-    return permissionTable;
+    return PermissionSnapshot.mergeAll(groupPermissions);
+  }
+
+  /**
+   * Linearize all groups reachable from this table. Every group appears
+   * exactly once and after all of its ancestors, siblings keep their
+   * declaration order, so the result is deterministic.
+   *
+   * @return Groups in topological order, most general group first.
+   * @throws IllegalStateException If the inheritance contains a cycle.
+   */
+  public List<PermissionGroup> linearize() {
+    var linearization = new LinkedHashSet<PermissionGroup>();
+    var path = new LinkedHashSet<PermissionGroup>();
+    for (var group : groups) {
+      linearize(group, path, linearization);
+    }
+    return List.copyOf(linearization);
+  }
+
+  private static void linearize(
+    PermissionGroup group,
+    Set<PermissionGroup> path,
+    Set<PermissionGroup> linearization
+  ) {
+    if (linearization.contains(group)) {
+      return;
+    }
+    if (!path.add(group)) {
+      var cycle = path.stream()
+        .dropWhile(pathGroup -> pathGroup != group)
+        .map(PermissionGroup::name)
+        .collect(Collectors.joining(" -> "));
+      throw new IllegalStateException(
+        "Cyclic group inheritance: " + cycle + " -> " + group.name()
+      );
+    }
+    for (var parent : group.inheritedGroups().groups) {
+      linearize(parent, path, linearization);
+    }
+    path.remove(group);
+    linearization.add(group);
   }
 
   public Set<PermissionGroup> groups() {
     return Set.copyOf(groups);
   }
 
+  /**
+   * Get the groups in the order they were added.
+   *
+   * @return Groups.
+   */
+  public List<PermissionGroup> asList() {
+    return List.copyOf(groups);
+  }
+
   public boolean add(PermissionGroup permissionGroup) {
     return groups.add(permissionGroup);
   }
@@ -52,7 +102,7 @@ public final class GroupTable {
 
   public static GroupTable withGroups(List<PermissionGroup> groups) {
     Preconditions.checkNotNull(groups);
-    return new GroupTable(Lists.newArrayList(groups));
+    return new GroupTable(Lists.newCopyOnWriteArrayList(groups));
   }
 
   public static GroupTable empty() {
@@ -1,17 +1,21 @@
 package com.mysteryworlds.chiara.group;
 
+import com.mysteryworlds.chiara.group.PermissionGroupUpdateEvent.Change;
 import com.mysteryworlds.chiara.permission.Permission;
 import com.mysteryworlds.chiara.permission.PermissionEntity;
+import com.mysteryworlds.chiara.permission.PermissionSnapshot;
 import com.mysteryworlds.chiara.permission.PermissionStatus;
 import com.mysteryworlds.chiara.permission.PermissionTable;
 import com.mysteryworlds.chiara.permission.WorldPermissionTable;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
+import java.util.List;
 import org.bukkit.plugin.PluginManager;
 
 public final class PermissionGroup extends PermissionEntity {
   private final String name;
   private final PluginManager pluginManager;
+  private volatile List<PermissionGroup> ancestors;
 
   PermissionGroup(
     String name,
@@ -30,6 +34,63 @@ public final class PermissionGroup extends PermissionEntity {
     return name;
   }
 
+  GroupTable inheritedGroups() {
+    return groupTable();
+  }
+
+  /**
+   * Get all groups this group inherits from, directly or indirectly, in
+   * topological order. The list is resolved once and cached until the
+   * effective permissions are invalidated.
+   *
+   * @return Ancestors, most general group first.
+   * @throws IllegalStateException If the inheritance contains a cycle.
+   */
+  public List<PermissionGroup> ancestors() {
+    var ancestors = this.ancestors;
+    if (ancestors == null) {
+      ancestors = groupTable().linearize();
+      this.ancestors = ancestors;
+    }
+    return ancestors;
+  }
+
+  /**
+   * Fold the own tables of all ancestors in topological order. Shared
+   * ancestors are applied exactly once, so a group inherited twice can't
+   * override a more specific group that was applied in between.
+   *
+   * @return Effective permissions.
+   */
+  @Override
+  public PermissionSnapshot calculateEffectivePermissions() {
+    var effectivePermissions = PermissionSnapshot.empty();
+    for (var ancestor : ancestors()) {
+      effectivePermissions = effectivePermissions
+        .merge(ancestor.basePermissions());
+    }
+    return effectivePermissions.merge(basePermissions());
+  }
+
+  @Override
+  public PermissionSnapshot calculateEffectivePermissions(String world) {
+    Preconditions.checkNotNull(world);
+    var effectivePermissions = PermissionSnapshot.empty();
+    for (var ancestor : ancestors()) {
+      effectivePermissions = effectivePermissions
+        .merge(ancestor.basePermissions())
+        .merge(ancestor.worldPermissions().calculateWorldPermissions(world));
+    }
+    return effectivePermissions.merge(basePermissions())
+      .merge(worldPermissions().calculateWorldPermissions(world));
+  }
+
+  @Override
+  public void invalidateEffectivePermissions() {
+    ancestors = null;
+    super.invalidateEffectivePermissions();
+  }
+
   @Override
   public boolean setPermissionStatus(
     Permission permission,
@@ -41,7 +102,9 @@ public final class PermissionGroup extends PermissionEntity {
     if (permissionChange.isCancelled()) {
       return false;
     }
-    return super.setPermissionStatus(permission, status);
+    var changed = super.setPermissionStatus(permission, status);
+    callUpdateEvent(Change.PERMISSIONS);
+    return changed;
   }
 
   @Override
@@ -57,7 +120,71 @@ public final class PermissionGroup extends PermissionEntity {
     if (permissionChange.isCancelled()) {
       return false;
     }
-    return super.setWorldPermissionStatus(permission, status, world);
+    var changed = super.setWorldPermissionStatus(permission, status, world);
+    callUpdateEvent(Change.PERMISSIONS);
+    return changed;
+  }
+
+  @Override
+  public boolean addGroup(PermissionGroup permissionGroup) {
+    Preconditions.checkNotNull(permissionGroup);
+    Preconditions.checkArgument(
+      permissionGroup != this && !permissionGroup.ancestors().contains(this),
+      "Group %s already inherits from %s", permissionGroup.name(), name
+    );
+    var inheritanceChange = callInheritanceChangeEvent(permissionGroup, true);
+    if (inheritanceChange.isCancelled()) {
+      return false;
+    }
+    var added = super.addGroup(permissionGroup);
+    callUpdateEvent(Change.INHERITANCE);
+    return added;
+  }
+
+  @Override
+  public boolean removeGroup(PermissionGroup permissionGroup) {
+    Preconditions.checkNotNull(permissionGroup);
+    var inheritanceChange = callInheritanceChangeEvent(permissionGroup, false);
+    if (inheritanceChange.isCancelled()) {
+      return false;
+    }
+    var removed = super.removeGroup(permissionGroup);
+    callUpdateEvent(Change.INHERITANCE);
+    return removed;
+  }
+
+  @Override
+  public void metadata(String metaKey, Object value) {
+    Preconditions.checkNotNull(metaKey);
+    Preconditions.checkNotNull(value);
+    var metadataChange = PermissionGroupMetadataChangeEvent.of(
+      this,
+      metaKey,
+      value
+    );
+    pluginManager.callEvent(metadataChange);
+    if (metadataChange.isCancelled()) {
+      return;
+    }
+    super.metadata(metaKey, value);
+    callUpdateEvent(Change.METADATA);
+  }
+
+  private void callUpdateEvent(Change change) {
+    pluginManager.callEvent(PermissionGroupUpdateEvent.of(this, change));
+  }
+
+  private PermissionGroupInheritanceChangeEvent callInheritanceChangeEvent(
+    PermissionGroup group,
+    boolean added
+  ) {
+    var inheritanceChange = PermissionGroupInheritanceChangeEvent.of(
+      this,
+      group,
+      added
+    );
+    pluginManager.callEvent(inheritanceChange);
+    return inheritanceChange;
   }
 
   private PermissionGroupChangeEvent callPermissionChangeEvent(
@@ -0,0 +1,47 @@
+package com.mysteryworlds.chiara.group;
+
+import com.mysteryworlds.chiara.permission.GroupMembershipChangeEvent;
+import com.google.common.base.Preconditions;
+import org.bukkit.event.HandlerList;
+
+public final class PermissionGroupInheritanceChangeEvent extends
+  GroupMembershipChangeEvent {
+  private static final HandlerList HANDLER_LIST = new HandlerList();
+  private final PermissionGroup inheritingGroup;
+
+  private PermissionGroupInheritanceChangeEvent(
+    PermissionGroup inheritingGroup,
+    PermissionGroup group,
+    boolean added
+  ) {
+    super(group, added);
+    this.inheritingGroup = inheritingGroup;
+  }
+
+  public static PermissionGroupInheritanceChangeEvent of(
+    PermissionGroup inheritingGroup,
+    PermissionGroup group,
+    boolean added
+  ) {
+    Preconditions.checkNotNull(inheritingGroup);
+    Preconditions.checkNotNull(group);
+    return new PermissionGroupInheritanceChangeEvent(
+      inheritingGroup,
+      group,
+      added
+    );
+  }
+
+  public static HandlerList getHandlerList() {
+    return HANDLER_LIST;
+  }
+
+  public PermissionGroup inheritingGroup() {
+    return inheritingGroup;
+  }
+
+  @Override
+  public HandlerList getHandlers() {
+    return getHandlerList();
+  }
+}
@@ -0,0 +1,67 @@
+package com.mysteryworlds.chiara.group;
+
+import com.google.common.base.Preconditions;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+
+public final class PermissionGroupMetadataChangeEvent extends Event implements
+  Cancellable {
+  private static final HandlerList HANDLER_LIST = new HandlerList();
+  private final PermissionGroup group;
+  private final String metaKey;
+  private final Object value;
+  private boolean cancelled;
+
+  private PermissionGroupMetadataChangeEvent(
+    PermissionGroup group,
+    String metaKey,
+    Object value
+  ) {
+    this.group = group;
+    this.metaKey = metaKey;
+    this.value = value;
+  }
+
+  public static PermissionGroupMetadataChangeEvent of(
+    PermissionGroup group,
+    String metaKey,
+    Object value
+  ) {
+    Preconditions.checkNotNull(group);
+    Preconditions.checkNotNull(metaKey);
+    Preconditions.checkNotNull(value);
+    return new PermissionGroupMetadataChangeEvent(group, metaKey, value);
+  }
+
+  public static HandlerList getHandlerList() {
+    return HANDLER_LIST;
+  }
+
+  public PermissionGroup group() {
+    return group;
+  }
+
+  public String metaKey() {
+    return metaKey;
+  }
+
+  public Object value() {
+    return value;
+  }
+
+  @Override
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  @Override
+  public void setCancelled(boolean cancelled) {
+    this.cancelled = cancelled;
+  }
+
+  @Override
+  public HandlerList getHandlers() {
+    return getHandlerList();
+  }
+}
@@ -1,11 +1,19 @@
 package com.mysteryworlds.chiara.group;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mysteryworlds.chiara.AtomicFiles;
+import com.mysteryworlds.chiara.ConfigJournal;
+import com.mysteryworlds.chiara.ConfigSnapshot;
+import com.mysteryworlds.chiara.ConfigSnapshot.Codec;
+import com.mysteryworlds.chiara.ConfigSnapshot.SnapshotReader;
+import com.mysteryworlds.chiara.ConfigSnapshot.SnapshotWriter;
 import com.mysteryworlds.chiara.permission.PermissionEntity.Metadata;
 import com.mysteryworlds.chiara.permission.PermissionTable;
 import com.mysteryworlds.chiara.permission.WorldPermissionTable;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -14,33 +22,73 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Singleton;
 
 @Singleton
 public final class PermissionGroupRepository {
+  private static final int SNAPSHOT_VERSION = 1;
   private final Map<String, PermissionGroup> groups = new ConcurrentHashMap<>();
+  /**
+   * Groups changed since they were last written to the journal or the config.
+   */
+  private final Set<String> changedGroups = ConcurrentHashMap.newKeySet();
+  private final AtomicBoolean dirty = new AtomicBoolean();
 
   private final PermissionGroupFactory groupFactory;
   private final Path configPath;
   private final ObjectMapper objectMapper;
+  private final Executor saveExecutor;
+  private final ConfigJournal<PermissionGroupConfig> journal;
+  private final ConfigSnapshot<PermissionGroupConfig> snapshot;
+  private final boolean configSnapshots;
 
   @Inject
   PermissionGroupRepository(
     PermissionGroupFactory groupFactory,
     @GroupConfig Path configPath,
-    ObjectMapper objectMapper
+    ObjectMapper objectMapper,
+    @Named("saveExecutor") Executor saveExecutor,
+    @Named("configSnapshots") boolean configSnapshots
   ) {
     this.groupFactory = groupFactory;
     this.configPath = configPath;
     this.objectMapper = objectMapper;
+    this.saveExecutor = saveExecutor;
+    this.journal = ConfigJournal.forConfig(
+      configPath,
+      objectMapper,
+      PermissionGroupConfig.class
+    );
+    this.snapshot = ConfigSnapshot.forConfig(
+      configPath,
+      SNAPSHOT_VERSION,
+      new PermissionGroupConfigCodec()
+    );
+    this.configSnapshots = configSnapshots;
   }
 
   public void save(PermissionGroup group) {
     Preconditions.checkNotNull(group);
     groups.put(group.name(), group);
+    markDirty(group.name());
+  }
+
+  /**
+   * Mark a group as changed, so the next autosave writes it.
+   *
+   * @param groupName Group name.
+   */
+  public void markDirty(String groupName) {
+    Preconditions.checkNotNull(groupName);
+    changedGroups.add(groupName);
+    dirty.set(true);
   }
 
   public Set<PermissionGroup> findAll() {
@@ -52,12 +100,84 @@ public final class PermissionGroupRepository {
     return Optional.ofNullable(groups.get(group));
   }
 
-  public void save() {
+  /**
+   * Append the groups changed since the last autosave to the journal on the
+   * save executor. Only the changed entries are written, the config itself
+   * is left untouched until the next full save.
+   *
+   * @return Future completed once the changes are written.
+   */
+  public CompletableFuture<Void> autosave() {
+    if (changedGroups.isEmpty()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return CompletableFuture.runAsync(this::writeChangedGroups, saveExecutor);
+  }
+
+  private void writeChangedGroups() {
+    Map<String, PermissionGroupConfigEntry> configEntries = new HashMap<>();
+    var iterator = changedGroups.iterator();
+    while (iterator.hasNext()) {
+      var groupName = iterator.next();
+      iterator.remove();
+      findGroup(groupName).ifPresent(group -> configEntries.put(
+        groupName,
+        PermissionGroupConfigEntry.fromGroup(group)
+      ));
+    }
+    if (configEntries.isEmpty()) {
+      return;
+    }
+    try {
+      journal.append(PermissionGroupConfig.withEntries(configEntries));
+    } catch (IOException e) {
+      changedGroups.addAll(configEntries.keySet());
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Write all groups on the save executor, if any group changed since the
+   * last full save. The config is replaced atomically, so a crash while
+   * saving leaves the previous config intact. Afterwards the journal is
+   * obsolete and removed.
+   *
+   * @return Future completed once the groups are written.
+   */
+  public CompletableFuture<Void> save() {
+    if (!dirty.get()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return CompletableFuture.runAsync(() -> {
+      if (dirty.getAndSet(false)) {
+        changedGroups.clear();
+        writeGroups();
+      }
+    }, saveExecutor);
+  }
+
+  private void writeGroups() {
     var groupConfig = writeGroupConfig();
     try {
-      var content = objectMapper.writeValueAsString(groupConfig);
-      Files.writeString(configPath, content);
+      var content = objectMapper.writeValueAsString(groupConfig)
+        .getBytes(StandardCharsets.UTF_8);
+      AtomicFiles.write(configPath, content);
+      journal.delete();
+      writeSnapshot(content, groupConfig);
+    } catch (IOException e) {
+      dirty.set(true);
+      e.printStackTrace();
+    }
+  }
+
+  private void writeSnapshot(byte[] source, PermissionGroupConfig groupConfig) {
+    if (!configSnapshots) {
+      return;
+    }
+    try {
+      snapshot.write(source, groupConfig);
     } catch (IOException e) {
+      // Without a matching snapshot the config is parsed instead.
       e.printStackTrace();
     }
   }
@@ -72,49 +192,126 @@ public final class PermissionGroupRepository {
 
   public void load() {
     try {
-      var content = Files.readString(configPath);
-      var groupConfig = objectMapper
-        .readValue(content, PermissionGroupConfig.class);
+      var content = Files.readAllBytes(configPath);
+      var groupConfig = readGroupConfig(content);
+      replayJournal(groupConfig);
       readGroups(groupConfig);
+      // Fails with an IllegalStateException on cyclic inheritance.
+      resolveInheritance();
     } catch (IOException e) {
       e.printStackTrace();
     }
   }
 
+  /**
+   * Read the group config from its snapshot if the snapshot matches the
+   * config, otherwise parse the config and snapshot it for the next start.
+   *
+   * @param content Content of the config.
+   * @return Group config.
+   * @throws IOException If the config can't be parsed.
+   */
+  private PermissionGroupConfig readGroupConfig(byte[] content)
+    throws IOException {
+    if (configSnapshots) {
+      var snapshotConfig = snapshot.read(content);
+      if (snapshotConfig.isPresent()) {
+        return snapshotConfig.get();
+      }
+    }
+    var groupConfig = objectMapper.readValue(
+      new String(content, StandardCharsets.UTF_8),
+      PermissionGroupConfig.class
+    );
+    writeSnapshot(content, groupConfig);
+    return groupConfig;
+  }
+
+  /**
+   * Apply the groups written by autosaves since the last full save, before
+   * any group is created. If there are any, the next full save folds them
+   * into the config.
+   *
+   * @param groupConfig Group config.
+   * @throws IOException If the journal can't be read.
+   */
+  private void replayJournal(PermissionGroupConfig groupConfig)
+    throws IOException {
+    var documents = journal.read();
+    for (var document : documents) {
+      groupConfig.getGroups().putAll(document.getGroups());
+    }
+    if (!documents.isEmpty()) {
+      dirty.set(true);
+    }
+  }
+
+  /**
+   * Linearize the inheritance of every group and fold its effective
+   * permissions, so the first permission checks don't have to walk the group
+   * graph.
+   *
+   * @throws IllegalStateException If the inheritance contains a cycle.
+   */
+  public void resolveInheritance() {
+    for (var group : groups.values()) {
+      group.invalidateEffectivePermissions();
+    }
+    for (var group : groups.values()) {
+      group.effectivePermissions();
+    }
+  }
+
+  /**
+   * Read all groups in two phases. Every group is created exactly once
+   * first, afterwards the inheritance is wired to the shared instances, so
+   * edits to a group are visible to every group inheriting from it.
+   *
+   * @param groupConfig Group config.
+   */
   private void readGroups(PermissionGroupConfig groupConfig) {
     var groupEntries = groupConfig.getGroups();
-    for (var groupName : groupEntries.keySet()) {
-      var permissionGroup = readGroup(groupName, groupEntries);
-      groups.put(groupName, permissionGroup);
-    }
+    Map<String, PermissionGroup> readGroups = Maps
+      .newHashMapWithExpectedSize(groupEntries.size());
+    groupEntries.forEach((groupName, configEntry) ->
+      readGroups.put(groupName, readGroup(groupName, configEntry))
+    );
+    groupEntries.forEach((groupName, configEntry) ->
+      readInheritance(readGroups.get(groupName), configEntry, readGroups)
+    );
+    groups.putAll(readGroups);
   }
 
   private PermissionGroup readGroup(
     String group,
-    Map<String, PermissionGroupConfigEntry> groups
+    PermissionGroupConfigEntry configEntry
   ) {
-    var configEntry = groups.get(group);
     var permissions = PermissionTable.withBoolPermissions(
       configEntry.getPermissions()
     );
-    var mappedGroups = readInheritance(configEntry, groups);
     return groupFactory.createGroup(
       group,
       permissions,
-      GroupTable.withGroups(mappedGroups),
+      GroupTable.empty(),
       WorldPermissionTable.withMapWorldBoolPermissions(configEntry.getWorlds()),
       Metadata.withContent(configEntry.getMetadata())
     );
   }
 
-  private List<PermissionGroup> readInheritance(
+  private void readInheritance(
+    PermissionGroup group,
     PermissionGroupConfigEntry configEntry,
-    Map<String, PermissionGroupConfigEntry> groups
+    Map<String, PermissionGroup> groups
   ) {
-    return configEntry.getInheritance()
-      .stream()
-      .map(groupName -> readGroup(groupName, groups))
-      .collect(Collectors.toList());
+    var inheritedGroups = group.inheritedGroups();
+    for (var groupName : configEntry.getInheritance()) {
+      var inheritedGroup = groups.get(groupName);
+      Preconditions.checkState(
+        inheritedGroup != null,
+        "Group %s inherits unknown group %s", group.name(), groupName
+      );
+      inheritedGroups.add(inheritedGroup);
+    }
   }
 
   public static final class PermissionGroupConfig {
@@ -166,7 +363,7 @@ public final class PermissionGroupRepository {
       return new PermissionGroupConfigEntry(
         group.basePermissions().asMap(),
         group.worldPermissions().asMap(),
-        group.groups().stream().map(PermissionGroup::name)
+        group.inheritedGroups().asList().stream().map(PermissionGroup::name)
           .collect(Collectors.toList()),
         group.metadata()
       );
@@ -205,4 +402,108 @@ public final class PermissionGroupRepository {
       return metadata;
     }
   }
+
+  /**
+   * Snapshot encoding of the group config. Permission, world and group names
+   * go through the dictionary, as they repeat across groups.
+   */
+  private static final class PermissionGroupConfigCodec implements
+    Codec<PermissionGroupConfig> {
+    @Override
+    public void write(PermissionGroupConfig value, SnapshotWriter writer)
+      throws IOException {
+      var groups = value.getGroups();
+      writer.writeVarInt(groups.size());
+      for (var groupEntry : groups.entrySet()) {
+        writer.writeInterned(groupEntry.getKey());
+        writeEntry(groupEntry.getValue(), writer);
+      }
+    }
+
+    private void writeEntry(
+      PermissionGroupConfigEntry entry,
+      SnapshotWriter writer
+    ) throws IOException {
+      writePermissions(entry.getPermissions(), writer);
+      var worlds = entry.getWorlds();
+      writer.writeVarInt(worlds.size());
+      for (var worldEntry : worlds.entrySet()) {
+        writer.writeInterned(worldEntry.getKey());
+        writePermissions(worldEntry.getValue(), writer);
+      }
+      var inheritance = entry.getInheritance();
+      writer.writeVarInt(inheritance.size());
+      for (var groupName : inheritance) {
+        writer.writeInterned(groupName);
+      }
+      var metadata = entry.getMetadata();
+      writer.writeVarInt(metadata.size());
+      for (var metadataEntry : metadata.entrySet()) {
+        writer.writeInterned(metadataEntry.getKey());
+        writer.writeValue(metadataEntry.getValue());
+      }
+    }
+
+    private void writePermissions(
+      Map<String, Boolean> permissions,
+      SnapshotWriter writer
+    ) throws IOException {
+      writer.writeVarInt(permissions.size());
+      for (var permissionEntry : permissions.entrySet()) {
+        writer.writeInterned(permissionEntry.getKey());
+        writer.writeBoolean(permissionEntry.getValue());
+      }
+    }
+
+    @Override
+    public PermissionGroupConfig read(SnapshotReader reader)
+      throws IOException {
+      var groupCount = reader.readVarInt();
+      Map<String, PermissionGroupConfigEntry> groups = Maps
+        .newHashMapWithExpectedSize(groupCount);
+      for (var i = 0; i < groupCount; i++) {
+        groups.put(reader.readInterned(), readEntry(reader));
+      }
+      return PermissionGroupConfig.withEntries(groups);
+    }
+
+    private PermissionGroupConfigEntry readEntry(SnapshotReader reader)
+      throws IOException {
+      var permissions = readPermissions(reader);
+      var worldCount = reader.readVarInt();
+      Map<String, Map<String, Boolean>> worlds = Maps
+        .newHashMapWithExpectedSize(worldCount);
+      for (var i = 0; i < worldCount; i++) {
+        worlds.put(reader.readInterned(), readPermissions(reader));
+      }
+      var inheritanceCount = reader.readVarInt();
+      List<String> inheritance = new ArrayList<>(inheritanceCount);
+      for (var i = 0; i < inheritanceCount; i++) {
+        inheritance.add(reader.readInterned());
+      }
+      var metadataCount = reader.readVarInt();
+      Map<String, Object> metadata = Maps
+        .newHashMapWithExpectedSize(metadataCount);
+      for (var i = 0; i < metadataCount; i++) {
+        metadata.put(reader.readInterned(), reader.readValue());
+      }
+      var entry = new PermissionGroupConfigEntry();
+      entry.setPermissions(permissions);
+      entry.setWorlds(worlds);
+      entry.setInheritance(inheritance);
+      entry.setMetadata(metadata);
+      return entry;
+    }
+
+    private Map<String, Boolean> readPermissions(SnapshotReader reader)
+      throws IOException {
+      var permissionCount = reader.readVarInt();
+      Map<String, Boolean> permissions = Maps
+        .newHashMapWithExpectedSize(permissionCount);
+      for (var i = 0; i < permissionCount; i++) {
+        permissions.put(reader.readInterned(), reader.readBoolean());
+      }
+      return permissions;
+    }
+  }
 }
@@ -0,0 +1,53 @@
+package com.mysteryworlds.chiara.group;
+
+import com.google.common.base.Preconditions;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+
+/**
+ * Called after a change of a group took effect. Unlike the cancellable change
+ * events, which are called before the change, listeners see the changed
+ * group.
+ */
+public final class PermissionGroupUpdateEvent extends Event {
+  private static final HandlerList HANDLER_LIST = new HandlerList();
+  private final PermissionGroup group;
+  private final Change change;
+
+  private PermissionGroupUpdateEvent(PermissionGroup group, Change change) {
+    this.group = group;
+    this.change = change;
+  }
+
+  public static PermissionGroupUpdateEvent of(
+    PermissionGroup group,
+    Change change
+  ) {
+    Preconditions.checkNotNull(group);
+    Preconditions.checkNotNull(change);
+    return new PermissionGroupUpdateEvent(group, change);
+  }
+
+  public static HandlerList getHandlerList() {
+    return HANDLER_LIST;
+  }
+
+  public PermissionGroup group() {
+    return group;
+  }
+
+  public Change change() {
+    return change;
+  }
+
+  @Override
+  public HandlerList getHandlers() {
+    return getHandlerList();
+  }
+
+  public enum Change {
+    PERMISSIONS,
+    INHERITANCE,
+    METADATA
+  }
+}
@@ -0,0 +1,35 @@
+package com.mysteryworlds.chiara.permission;
+
+import com.mysteryworlds.chiara.group.PermissionGroup;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+
+public abstract class GroupMembershipChangeEvent extends Event implements
+  Cancellable {
+  private final PermissionGroup group;
+  private final boolean added;
+  private boolean cancelled;
+
+  protected GroupMembershipChangeEvent(PermissionGroup group, boolean added) {
+    this.group = group;
+    this.added = added;
+  }
+
+  public PermissionGroup group() {
+    return group;
+  }
+
+  public boolean added() {
+    return added;
+  }
+
+  @Override
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  @Override
+  public void setCancelled(boolean cancelled) {
+    this.cancelled = cancelled;
+  }
+}
@@ -0,0 +1,133 @@
+package com.mysteryworlds.chiara.permission;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.Doubles;
+import com.google.common.primitives.Ints;
+
+/**
+ * Typed metadata value. The raw value is converted once when the value is
+ * created and the results are kept in primitive slots, so reading a value as
+ * int, double, boolean or string neither casts nor boxes. Values are
+ * immutable and can be shared between threads.
+ */
+public final class MetadataValue {
+  private static final MetadataValue ABSENT = new MetadataValue(
+    null,
+    null,
+    0,
+    0,
+    false,
+    0
+  );
+  private static final int INT = 1;
+  private static final int DOUBLE = 1 << 1;
+  private static final int BOOLEAN = 1 << 2;
+  private final Object value;
+  private final String stringValue;
+  private final int intValue;
+  private final double doubleValue;
+  private final boolean booleanValue;
+  private final int types;
+
+  private MetadataValue(
+    Object value,
+    String stringValue,
+    int intValue,
+    double doubleValue,
+    boolean booleanValue,
+    int types
+  ) {
+    this.value = value;
+    this.stringValue = stringValue;
+    this.intValue = intValue;
+    this.doubleValue = doubleValue;
+    this.booleanValue = booleanValue;
+    this.types = types;
+  }
+
+  /**
+   * Get the value that stands for a missing metadata entry. Every typed read
+   * of it returns the given default value.
+   *
+   * @return Absent value.
+   */
+  public static MetadataValue absent() {
+    return ABSENT;
+  }
+
+  public static MetadataValue of(Object value) {
+    Preconditions.checkNotNull(value);
+    var stringValue = value.toString();
+    if (value instanceof Number) {
+      var number = (Number) value;
+      var doubleValue = number.doubleValue();
+      var types = DOUBLE;
+      if (doubleValue == (int) doubleValue) {
+        types |= INT;
+      }
+      return new MetadataValue(value, stringValue, (int) doubleValue,
+        doubleValue, false, types);
+    }
+    if (value instanceof Boolean) {
+      return new MetadataValue(value, stringValue, 0, 0, (Boolean) value,
+        BOOLEAN);
+    }
+    return parse(value, stringValue);
+  }
+
+  private static MetadataValue parse(Object value, String stringValue) {
+    var trimmed = stringValue.trim();
+    var intValue = Ints.tryParse(trimmed);
+    if (intValue != null) {
+      return new MetadataValue(value, stringValue, intValue, intValue, false,
+        INT | DOUBLE);
+    }
+    var doubleValue = Doubles.tryParse(trimmed);
+    if (doubleValue != null) {
+      return new MetadataValue(value, stringValue, 0, doubleValue, false,
+        DOUBLE);
+    }
+    if (trimmed.equalsIgnoreCase("true") || trimmed.equalsIgnoreCase("false")) {
+      return new MetadataValue(value, stringValue, 0, 0,
+        Boolean.parseBoolean(trimmed), BOOLEAN);
+    }
+    return new MetadataValue(value, stringValue, 0, 0, false, 0);
+  }
+
+  public boolean isPresent() {
+    return value != null;
+  }
+
+  /**
+   * Get the value as it was written or loaded.
+   *
+   * @return Raw value or {@code null} if the value is absent.
+   */
+  public Object value() {
+    return value;
+  }
+
+  public String stringValue(String defaultValue) {
+    return value != null ? stringValue : defaultValue;
+  }
+
+  public int intValue(int defaultValue) {
+    return (types & INT) != 0 ? intValue : defaultValue;
+  }
+
+  public double doubleValue(double defaultValue) {
+    return (types & DOUBLE) != 0 ? doubleValue : defaultValue;
+  }
+
+  public boolean booleanValue(boolean defaultValue) {
+    return (types & BOOLEAN) != 0 ? booleanValue : defaultValue;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+      .add("value", value)
+      .toString();
+  }
+}
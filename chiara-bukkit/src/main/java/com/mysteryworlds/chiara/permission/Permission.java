@@ -1,46 +1,141 @@
 package com.mysteryworlds.chiara.permission;
 
 import com.google.common.base.MoreObjects;
-import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 
+/**
+ * A permission node. Permissions stored in tables are interned, so there is
+ * exactly one instance per name and each instance carries a dense numeric id.
+ * Names that are only checked are looked up without interning, as they come
+ * from other plugins and players and would never be freed.
+ */
 public final class Permission {
+  public static final String WILDCARD = "*";
+  private static final PermissionRegistry REGISTRY = new PermissionRegistry();
+  static final int NO_ID = -1;
+  /**
+   * Stands for every name that isn't interned. It isn't registered, so it
+   * matches no node of any table.
+   */
+  private static final Permission UNKNOWN = new Permission("", NO_ID);
   private final String name;
+  private final int id;
+  private volatile WildcardIds wildcardIds;
 
-  private Permission(String name) {
+  Permission(String name, int id) {
     this.name = name;
+    this.id = id;
   }
 
+  /**
+   * Get the interned permission of a name. Use for permissions that are
+   * stored in a table.
+   *
+   * @param name Permission name.
+   * @return Interned permission.
+   */
   public static Permission of(String name) {
     Preconditions.checkNotNull(name);
-    return new Permission(name);
+    return REGISTRY.intern(name);
+  }
+
+  /**
+   * Get the interned permission of a name without interning it. A name that
+   * was never stored can't be set in any table and only matches through its
+   * wildcard nodes, see {@link #wildcardIds(String)}.
+   *
+   * @param name Permission name.
+   * @return Interned permission or a shared permission that isn't interned.
+   */
+  public static Permission lookup(String name) {
+    Preconditions.checkNotNull(name);
+    var permission = REGISTRY.find(name);
+    return permission != null ? permission : UNKNOWN;
+  }
+
+  /**
+   * Get the ids of the interned wildcard nodes matching a name, most specific
+   * first. Wildcards that were never stored can't be set and are skipped.
+   *
+   * @param name Permission name.
+   * @return Shared wildcard ids, must not be modified.
+   */
+  static int[] wildcardIds(String name) {
+    return REGISTRY.wildcardIndex().wildcardIds(name);
+  }
+
+  static Permission byId(int id) {
+    return REGISTRY.byId(id);
   }
 
   public String name() {
     return name;
   }
 
+  /**
+   * Get the id of the permission.
+   *
+   * @return Id, negative if the permission isn't interned.
+   * @see #isInterned()
+   */
+  public int id() {
+    return id;
+  }
+
+  public boolean isInterned() {
+    return id != NO_ID;
+  }
+
+  public boolean isWildcard() {
+    return name.equals(WILDCARD) || name.endsWith("." + WILDCARD);
+  }
+
+  /**
+   * Get the ids of the interned wildcard nodes matching this permission, most
+   * specific first. For {@code epic.fly.high} these are at most {@code
+   * epic.fly.*}, {@code epic.*} and {@code *}. The ids are cached until
+   * another wildcard is interned.
+   *
+   * @return Shared wildcard ids, must not be modified.
+   */
+  int[] wildcardIds() {
+    var wildcardIndex = REGISTRY.wildcardIndex();
+    var ids = wildcardIds;
+    if (ids == null || ids.wildcardIndex != wildcardIndex) {
+      ids = new WildcardIds(wildcardIndex.wildcardIds(name), wildcardIndex);
+      wildcardIds = ids;
+    }
+    return ids.ids;
+  }
+
   @Override
   public String toString() {
     return MoreObjects.toStringHelper(this)
       .add("name", name)
+      .add("id", id)
       .toString();
   }
 
   @Override
   public boolean equals(Object o) {
-    if (this == o) {
-      return true;
-    }
-    if (o == null || getClass() != o.getClass()) {
-      return false;
-    }
-    Permission that = (Permission) o;
-    return Objects.equal(name, that.name);
+    return this == o;
   }
 
   @Override
   public int hashCode() {
-    return Objects.hashCode(name);
+    return isInterned() ? id : name.hashCode();
+  }
+
+  /**
+   * Wildcard ids resolved from the given wildcard index.
+   */
+  private static final class WildcardIds {
+    private final int[] ids;
+    private final WildcardIndex wildcardIndex;
+
+    private WildcardIds(int[] ids, WildcardIndex wildcardIndex) {
+      this.ids = ids;
+      this.wildcardIndex = wildcardIndex;
+    }
   }
 }
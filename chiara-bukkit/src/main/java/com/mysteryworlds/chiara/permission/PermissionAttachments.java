@@ -0,0 +1,60 @@
+package com.mysteryworlds.chiara.permission;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Map;
+import org.bukkit.permissions.PermissionAttachment;
+
+/**
+ * Access to the internals of bukkit permission attachments. Writing into the
+ * backing map directly avoids a full permission recalculation for every
+ * single node. The field is resolved once, if that fails the public attachment
+ * API is used instead.
+ */
+final class PermissionAttachments {
+  private static final VarHandle PERMISSIONS = findPermissionsHandle();
+
+  private PermissionAttachments() {
+  }
+
+  private static VarHandle findPermissionsHandle() {
+    try {
+      return MethodHandles
+        .privateLookupIn(PermissionAttachment.class, MethodHandles.lookup())
+        .findVarHandle(PermissionAttachment.class, "permissions", Map.class);
+    } catch (NoSuchFieldException | IllegalAccessException e) {
+      e.printStackTrace();
+      return null;
+    }
+  }
+
+  static void setPermission(
+    PermissionAttachment permissionAttachment,
+    String permission,
+    boolean value
+  ) {
+    if (PERMISSIONS == null) {
+      permissionAttachment.setPermission(permission, value);
+      return;
+    }
+    permissionsMap(permissionAttachment).put(permission, value);
+  }
+
+  static void unsetPermission(
+    PermissionAttachment permissionAttachment,
+    String permission
+  ) {
+    if (PERMISSIONS == null) {
+      permissionAttachment.unsetPermission(permission);
+      return;
+    }
+    permissionsMap(permissionAttachment).remove(permission);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Boolean> permissionsMap(
+    PermissionAttachment permissionAttachment
+  ) {
+    return (Map<String, Boolean>) PERMISSIONS.get(permissionAttachment);
+  }
+}
@@ -5,15 +5,23 @@ import com.mysteryworlds.chiara.group.PermissionGroup;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class PermissionEntity {
   private final PermissionTable permissions;
   private final GroupTable groups;
   private final WorldPermissionTable worldPermissions;
   private final Metadata metadata;
+  private volatile EffectivePermissions effectivePermissions =
+    new EffectivePermissions();
+  private volatile Map<String, MetadataValue> effectiveMetadata =
+    new ConcurrentHashMap<>();
 
   protected PermissionEntity(
     PermissionTable permissions,
@@ -39,22 +47,89 @@ public class PermissionEntity {
     return groups.groups();
   }
 
+  protected GroupTable groupTable() {
+    return groups;
+  }
+
+  /**
+   * Check whether this entity inherits from a group, directly or through
+   * the inheritance of its groups.
+   *
+   * @param group Group.
+   * @return Whether the entity depends on the group.
+   */
+  public boolean inheritsFrom(PermissionGroup group) {
+    Preconditions.checkNotNull(group);
+    for (var directGroup : groups.asList()) {
+      if (directGroup == group || directGroup.ancestors().contains(group)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   public boolean addGroup(PermissionGroup permissionGroup) {
     Preconditions.checkNotNull(permissionGroup);
-    return groups.add(permissionGroup);
+    var added = groups.add(permissionGroup);
+    invalidateEffectivePermissions();
+    invalidateEffectiveMetadata();
+    return added;
   }
 
   public boolean removeGroup(PermissionGroup permissionGroup) {
     Preconditions.checkNotNull(permissionGroup);
-    return groups.remove(permissionGroup);
+    var removed = groups.remove(permissionGroup);
+    invalidateEffectivePermissions();
+    invalidateEffectiveMetadata();
+    return removed;
+  }
+
+  /**
+   * Get the compiled effective permissions of this entity. The table is
+   * calculated once and cached until the entity or one of its groups changes.
+   *
+   * @return Immutable effective permissions.
+   */
+  public PermissionSnapshot effectivePermissions() {
+    var effectivePermissions = this.effectivePermissions;
+    var snapshot = effectivePermissions.permissions;
+    if (snapshot == null) {
+      snapshot = calculateEffectivePermissions();
+      effectivePermissions.permissions = snapshot;
+    }
+    return snapshot;
+  }
+
+  /**
+   * Get the compiled effective permissions of this entity in the given world.
+   * The table is calculated once per world and cached until the entity or one
+   * of its groups changes.
+   *
+   * @param world World name.
+   * @return Immutable effective permissions.
+   */
+  public PermissionSnapshot effectivePermissions(String world) {
+    Preconditions.checkNotNull(world);
+    return effectivePermissions.worldPermissions.computeIfAbsent(
+      world,
+      this::calculateEffectivePermissions
+    );
+  }
+
+  /**
+   * Drop all cached effective permissions so they are recalculated on the
+   * next access.
+   */
+  public void invalidateEffectivePermissions() {
+    effectivePermissions = new EffectivePermissions();
   }
 
-  public PermissionTable calculateEffectivePermissions() {
+  public PermissionSnapshot calculateEffectivePermissions() {
     var groupPermissions = groups.calculateEffectivePermissions();
     return groupPermissions.merge(permissions);
   }
 
-  public PermissionTable calculateEffectivePermissions(String world) {
+  public PermissionSnapshot calculateEffectivePermissions(String world) {
     Preconditions.checkNotNull(world);
     var groupPermissions = groups.calculateEffectivePermissions(world);
     var worldPermissions = this.worldPermissions
@@ -64,13 +139,53 @@ public class PermissionEntity {
   }
 
   public boolean hasPermission(String permission) {
-    var perm = Permission.of(permission);
-    return calculateEffectivePermissions().statusOf(perm).booleanValue();
+    return effectivePermissions().statusOf(permission).booleanValue();
   }
 
   public boolean hasPermission(String permission, String world) {
-    var perm = Permission.of(permission);
-    return calculateEffectivePermissions(world).statusOf(perm).booleanValue();
+    return effectivePermissions(world).statusOf(permission).booleanValue();
+  }
+
+  /**
+   * Check multiple permissions against one resolved snapshot, so the
+   * effective permissions are looked up only once for the whole batch.
+   *
+   * @param permissions Permission names.
+   * @return Bit set with bit {@code i} set if the {@code i}-th permission is
+   * allowed.
+   */
+  public BitSet hasPermissions(List<String> permissions) {
+    Preconditions.checkNotNull(permissions);
+    return hasPermissions(effectivePermissions(), permissions);
+  }
+
+  /**
+   * Check multiple permissions in a world against one resolved snapshot.
+   *
+   * @param permissions Permission names.
+   * @param world       World name.
+   * @return Bit set with bit {@code i} set if the {@code i}-th permission is
+   * allowed.
+   */
+  public BitSet hasPermissions(List<String> permissions, String world) {
+    Preconditions.checkNotNull(permissions);
+    Preconditions.checkNotNull(world);
+    return hasPermissions(effectivePermissions(world), permissions);
+  }
+
+  private static BitSet hasPermissions(
+    PermissionSnapshot snapshot,
+    List<String> permissions
+  ) {
+    var result = new BitSet(permissions.size());
+    var index = 0;
+    for (var permission : permissions) {
+      if (snapshot.statusOf(permission).booleanValue()) {
+        result.set(index);
+      }
+      index++;
+    }
+    return result;
   }
 
   protected boolean setPermissionStatus(
@@ -80,6 +195,7 @@ public class PermissionEntity {
     Preconditions.checkNotNull(permission);
     Preconditions.checkNotNull(status);
     permissions.setStatus(permission, status);
+    invalidateEffectivePermissions();
     return true;
   }
 
@@ -92,6 +208,7 @@ public class PermissionEntity {
     Preconditions.checkNotNull(status);
     Preconditions.checkNotNull(world);
     worldPermissions.setStatus(permission, status, world);
+    invalidateEffectivePermissions();
     return true;
   }
 
@@ -108,6 +225,55 @@ public class PermissionEntity {
     Preconditions.checkNotNull(metaKey);
     Preconditions.checkNotNull(value);
     metadata.write(metaKey, value);
+    invalidateEffectiveMetadata();
+  }
+
+  /**
+   * Resolve a metadata value including inherited values. The own metadata
+   * wins, afterwards the groups are asked in the order they were added, each
+   * of them resolving its own inheritance the same way. Resolved values are
+   * cached until the metadata or the groups of this entity change.
+   *
+   * @param metaKey Metadata key.
+   * @return Resolved value.
+   */
+  public Optional<Object> effectiveMetadata(String metaKey) {
+    return Optional.ofNullable(effectiveMetadataValue(metaKey).value());
+  }
+
+  /**
+   * Resolve the typed metadata value of a key including inherited values.
+   *
+   * @param metaKey Metadata key.
+   * @return Resolved value or {@link MetadataValue#absent()} if neither the
+   * entity nor one of its groups has a value.
+   * @see #effectiveMetadata(String)
+   */
+  public MetadataValue effectiveMetadataValue(String metaKey) {
+    Preconditions.checkNotNull(metaKey);
+    return effectiveMetadata.computeIfAbsent(metaKey, this::resolveMetadata);
+  }
+
+  private MetadataValue resolveMetadata(String metaKey) {
+    var value = metadata.value(metaKey);
+    if (value.isPresent()) {
+      return value;
+    }
+    for (var group : groups.asList()) {
+      value = group.effectiveMetadataValue(metaKey);
+      if (value.isPresent()) {
+        return value;
+      }
+    }
+    return MetadataValue.absent();
+  }
+
+  /**
+   * Drop all cached metadata values so they are resolved again on the next
+   * access.
+   */
+  public void invalidateEffectiveMetadata() {
+    effectiveMetadata = new ConcurrentHashMap<>();
   }
 
   @Override
@@ -119,32 +285,112 @@ public class PermissionEntity {
       .toString();
   }
 
+  /**
+   * Effective permissions compiled from one state of the entity. Invalidation
+   * publishes a fresh instance, so a result that was calculated concurrently
+   * from an outdated state ends up in an instance no reader sees anymore.
+   */
+  private static final class EffectivePermissions {
+    private final Map<String, PermissionSnapshot> worldPermissions =
+      new ConcurrentHashMap<>();
+    private volatile PermissionSnapshot permissions;
+  }
+
+  /**
+   * Entity metadata. Values are converted into typed values once when they
+   * are loaded or written. The content is an immutable map that writers
+   * replace as a whole, so it can be read from any thread without locking.
+   */
   public static class Metadata {
-    private final Map<String, Object> content;
+    private volatile Content content;
 
-    private Metadata(Map<String, Object> content) {
+    private Metadata(Content content) {
       this.content = content;
     }
 
     public static Metadata empty() {
-      return new Metadata(Maps.newHashMap());
+      return new Metadata(new Content(Map.of(), Map.of()));
     }
 
+    /**
+     * Create metadata of config content. Keys without a value, e.g. a
+     * {@code prefix:} left empty in the config, are treated as absent.
+     *
+     * @param content Raw metadata values.
+     * @return Metadata.
+     */
     public static Metadata withContent(Map<String, Object> content) {
       Preconditions.checkNotNull(content);
-      return new Metadata(Maps.newHashMap(content));
+      Map<String, Object> rawValues = Maps.newHashMapWithExpectedSize(
+        content.size()
+      );
+      Map<String, MetadataValue> values = Maps.newHashMapWithExpectedSize(
+        content.size()
+      );
+      content.forEach((key, value) -> {
+        if (value != null) {
+          rawValues.put(key, value);
+          values.put(key, MetadataValue.of(value));
+        }
+      });
+      return new Metadata(new Content(
+        Collections.unmodifiableMap(rawValues),
+        Collections.unmodifiableMap(values)
+      ));
     }
 
     public Optional<Object> read(String metaKey) {
-      return Optional.ofNullable(content.get(metaKey));
+      return Optional.ofNullable(content.rawValues.get(metaKey));
     }
 
-    public void write(String metaKey, Object value) {
-      content.put(metaKey, value);
+    /**
+     * Read the typed value of a key.
+     *
+     * @param metaKey Metadata key.
+     * @return Value or {@link MetadataValue#absent()} if the key isn't set.
+     */
+    public MetadataValue value(String metaKey) {
+      return content.values.getOrDefault(metaKey, MetadataValue.absent());
+    }
+
+    /**
+     * Write the value of a key. Writing {@code null} removes the key.
+     *
+     * @param metaKey Metadata key.
+     * @param value   Value or {@code null}.
+     */
+    public synchronized void write(String metaKey, Object value) {
+      var content = this.content;
+      Map<String, Object> newRawValues = Maps.newHashMap(content.rawValues);
+      Map<String, MetadataValue> newValues = Maps.newHashMap(content.values);
+      if (value == null) {
+        newRawValues.remove(metaKey);
+        newValues.remove(metaKey);
+      } else {
+        newRawValues.put(metaKey, value);
+        newValues.put(metaKey, MetadataValue.of(value));
+      }
+      this.content = new Content(
+        Collections.unmodifiableMap(newRawValues),
+        Collections.unmodifiableMap(newValues)
+      );
     }
 
     public Map<String, Object> asMap() {
-      return Map.copyOf(content);
+      return content.rawValues;
+    }
+
+    private static final class Content {
+      private final Map<String, Object> rawValues;
+      private final Map<String, MetadataValue> values;
+
+      private Content(
+        Map<String, Object> rawValues,
+        Map<String, MetadataValue> values
+      ) {
+        this.rawValues = rawValues;
+        this.values = values;
+      }
     }
   }
 }
@@ -0,0 +1,86 @@
+package com.mysteryworlds.chiara.permission;
+
+import com.google.common.base.MoreObjects;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns permissions by name. Every distinct permission node exists exactly
+ * once and gets a dense id, so permission tables can key their entries by
+ * plain ints instead of hashing the full name on every lookup.
+ */
+final class PermissionRegistry {
+  private static final int INITIAL_CAPACITY = 1024;
+  private final Map<String, Permission> permissions = new ConcurrentHashMap<>();
+  private volatile Permission[] permissionsById =
+    new Permission[INITIAL_CAPACITY];
+  private final List<Permission> wildcards = new ArrayList<>();
+  private volatile WildcardIndex wildcardIndex = WildcardIndex.EMPTY;
+  private int size;
+
+  Permission intern(String name) {
+    var permission = permissions.get(name);
+    if (permission != null) {
+      return permission;
+    }
+    return register(name);
+  }
+
+  private synchronized Permission register(String name) {
+    var permission = permissions.get(name);
+    if (permission != null) {
+      return permission;
+    }
+    permission = new Permission(name, size);
+    var byId = permissionsById;
+    if (size == byId.length) {
+      byId = Arrays.copyOf(byId, byId.length * 2);
+    }
+    byId[size++] = permission;
+    permissionsById = byId;
+    permissions.put(name, permission);
+    if (permission.isWildcard()) {
+      wildcards.add(permission);
+      wildcardIndex = WildcardIndex.of(wildcards);
+    }
+    return permission;
+  }
+
+  /**
+   * Find an interned permission without interning it.
+   *
+   * @param name Permission name.
+   * @return Permission or {@code null} if it isn't interned.
+   */
+  Permission find(String name) {
+    return permissions.get(name);
+  }
+
+  Permission byId(int id) {
+    return permissionsById[id];
+  }
+
+  /**
+   * Get the index of the interned wildcard nodes. A new index is published
+   * whenever a wildcard is interned.
+   *
+   * @return Wildcard index.
+   */
+  WildcardIndex wildcardIndex() {
+    return wildcardIndex;
+  }
+
+  int size() {
+    return permissions.size();
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+      .add("size", size())
+      .toString();
+  }
+}
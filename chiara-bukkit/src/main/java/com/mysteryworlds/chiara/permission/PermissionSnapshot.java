@@ -0,0 +1,286 @@
+package com.mysteryworlds.chiara.permission;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import org.bukkit.permissions.PermissionAttachment;
+
+/**
+ * Immutable set of effective permissions encoded as two bitsets over the
+ * interned permission ids: one for allowed and one for explicitly declined
+ * permissions. Merging snapshots is a word wise OR / AND-NOT and never touches
+ * single entries.
+ */
+public final class PermissionSnapshot {
+  private static final PermissionSnapshot EMPTY = new PermissionSnapshot(
+    new long[0],
+    new long[0]
+  );
+  private final long[] allowed;
+  private final long[] declined;
+
+  private PermissionSnapshot(long[] allowed, long[] declined) {
+    this.allowed = allowed;
+    this.declined = declined;
+  }
+
+  public static PermissionSnapshot empty() {
+    return EMPTY;
+  }
+
+  public static PermissionSnapshot of(PermissionTable permissions) {
+    Preconditions.checkNotNull(permissions);
+    return EMPTY.merge(permissions);
+  }
+
+  /**
+   * Merge the given snapshots in order, later snapshots override earlier ones.
+   * Only the resulting bitsets are allocated.
+   *
+   * @param snapshots Snapshots.
+   * @return Merged snapshot.
+   */
+  public static PermissionSnapshot mergeAll(List<PermissionSnapshot> snapshots) {
+    Preconditions.checkNotNull(snapshots);
+    if (snapshots.size() == 1) {
+      return snapshots.get(0);
+    }
+    var length = 0;
+    for (var snapshot : snapshots) {
+      length = Math.max(length, snapshot.allowed.length);
+    }
+    if (length == 0) {
+      return EMPTY;
+    }
+    var allowed = new long[length];
+    var declined = new long[length];
+    for (var snapshot : snapshots) {
+      mergeInto(allowed, declined, snapshot);
+    }
+    return new PermissionSnapshot(allowed, declined);
+  }
+
+  private static void mergeInto(
+    long[] allowed,
+    long[] declined,
+    PermissionSnapshot source
+  ) {
+    for (var i = 0; i < source.allowed.length; i++) {
+      allowed[i] = (allowed[i] & ~source.declined[i]) | source.allowed[i];
+      declined[i] = (declined[i] & ~source.allowed[i]) | source.declined[i];
+    }
+  }
+
+  /**
+   * Merge the source snapshot into this snapshot.
+   *
+   * @param source Source snapshot.
+   * @return Target snapshot.
+   */
+  public PermissionSnapshot merge(PermissionSnapshot source) {
+    Preconditions.checkNotNull(source);
+    if (source.isEmpty()) {
+      return this;
+    }
+    var length = Math.max(allowed.length, source.allowed.length);
+    var mergedAllowed = Arrays.copyOf(allowed, length);
+    var mergedDeclined = Arrays.copyOf(declined, length);
+    mergeInto(mergedAllowed, mergedDeclined, source);
+    return new PermissionSnapshot(mergedAllowed, mergedDeclined);
+  }
+
+  /**
+   * Merge the source table into this snapshot.
+   *
+   * @param source Source table.
+   * @return Target snapshot.
+   */
+  public PermissionSnapshot merge(PermissionTable source) {
+    Preconditions.checkNotNull(source);
+    if (source.isEmpty()) {
+      return this;
+    }
+    var length = Math.max(allowed.length, wordIndex(source.maxId()) + 1);
+    var mergedAllowed = Arrays.copyOf(allowed, length);
+    var mergedDeclined = Arrays.copyOf(declined, length);
+    source.forEach((permission, status) -> {
+      var word = wordIndex(permission.id());
+      var mask = 1L << permission.id();
+      if (status == PermissionStatus.ALLOWED) {
+        mergedAllowed[word] |= mask;
+        mergedDeclined[word] &= ~mask;
+      } else {
+        mergedDeclined[word] |= mask;
+        mergedAllowed[word] &= ~mask;
+      }
+    });
+    return new PermissionSnapshot(mergedAllowed, mergedDeclined);
+  }
+
+  /**
+   * Get the status of the given permission. An explicitly set node always
+   * wins, otherwise the most specific matching wildcard node decides.
+   *
+   * @param permission Permission.
+   * @return Permission status.
+   */
+  public PermissionStatus statusOf(Permission permission) {
+    Preconditions.checkNotNull(permission);
+    Preconditions.checkArgument(
+      permission.isInterned(),
+      "Permission isn't interned: %s",
+      permission
+    );
+    var status = statusOf(permission.id());
+    if (status != PermissionStatus.NOT_SET) {
+      return status;
+    }
+    return wildcardStatusOf(permission.wildcardIds());
+  }
+
+  /**
+   * Get the status of a permission by name without interning it. Names that
+   * were never stored only match through their wildcard nodes.
+   *
+   * @param permission Permission name.
+   * @return Permission status.
+   * @see #statusOf(Permission)
+   */
+  public PermissionStatus statusOf(String permission) {
+    Preconditions.checkNotNull(permission);
+    var internedPermission = Permission.lookup(permission);
+    if (internedPermission.isInterned()) {
+      return statusOf(internedPermission);
+    }
+    return wildcardStatusOf(Permission.wildcardIds(permission));
+  }
+
+  private PermissionStatus wildcardStatusOf(int[] wildcardIds) {
+    for (var wildcardId : wildcardIds) {
+      var status = statusOf(wildcardId);
+      if (status != PermissionStatus.NOT_SET) {
+        return status;
+      }
+    }
+    return PermissionStatus.NOT_SET;
+  }
+
+  private PermissionStatus statusOf(int id) {
+    var word = wordIndex(id);
+    if (word >= allowed.length) {
+      return PermissionStatus.NOT_SET;
+    }
+    var mask = 1L << id;
+    if ((allowed[word] & mask) != 0) {
+      return PermissionStatus.ALLOWED;
+    }
+    if ((declined[word] & mask) != 0) {
+      return PermissionStatus.DECLINED;
+    }
+    return PermissionStatus.NOT_SET;
+  }
+
+  public boolean isEmpty() {
+    for (var i = 0; i < allowed.length; i++) {
+      if (allowed[i] != 0 || declined[i] != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Apply only the difference to a previously applied snapshot. Nodes are
+   * written into the backing map of the attachment, the caller has to
+   * recalculate the permissible if anything changed.
+   *
+   * @param permissionAttachment Attachment the previous snapshot was applied
+   *                             to.
+   * @param previous             Previously applied snapshot.
+   * @return Whether any node of the attachment changed.
+   */
+  public boolean apply(
+    PermissionAttachment permissionAttachment,
+    PermissionSnapshot previous
+  ) {
+    Preconditions.checkNotNull(permissionAttachment);
+    Preconditions.checkNotNull(previous);
+    if (previous == this) {
+      return false;
+    }
+    var changedAny = false;
+    var length = Math.max(allowed.length, previous.allowed.length);
+    for (var word = 0; word < length; word++) {
+      var changed = (wordOf(allowed, word) ^ wordOf(previous.allowed, word))
+        | (wordOf(declined, word) ^ wordOf(previous.declined, word));
+      if (changed == 0) {
+        continue;
+      }
+      changedAny = true;
+      while (changed != 0) {
+        var bit = Long.numberOfTrailingZeros(changed);
+        var id = word * Long.SIZE + bit;
+        var name = Permission.byId(id).name();
+        var status = statusOf(id);
+        if (status == PermissionStatus.NOT_SET) {
+          PermissionAttachments.unsetPermission(permissionAttachment, name);
+        } else {
+          PermissionAttachments.setPermission(
+            permissionAttachment,
+            name,
+            status.booleanValue()
+          );
+        }
+        changed &= changed - 1;
+      }
+    }
+    return changedAny;
+  }
+
+  private static long wordOf(long[] bits, int word) {
+    return word < bits.length ? bits[word] : 0;
+  }
+
+  void forEach(BiConsumer<Permission, PermissionStatus> consumer) {
+    forEachBit(allowed, PermissionStatus.ALLOWED, consumer);
+    forEachBit(declined, PermissionStatus.DECLINED, consumer);
+  }
+
+  private static void forEachBit(
+    long[] bits,
+    PermissionStatus status,
+    BiConsumer<Permission, PermissionStatus> consumer
+  ) {
+    for (var word = 0; word < bits.length; word++) {
+      var remaining = bits[word];
+      while (remaining != 0) {
+        var bit = Long.numberOfTrailingZeros(remaining);
+        consumer.accept(Permission.byId(word * Long.SIZE + bit), status);
+        remaining &= remaining - 1;
+      }
+    }
+  }
+
+  public Map<String, Boolean> asMap() {
+    Map<String, Boolean> permissionsMap = Maps.newHashMap();
+    forEach((permission, status) ->
+      permissionsMap.put(permission.name(), status.booleanValue())
+    );
+    return permissionsMap;
+  }
+
+  private static int wordIndex(int id) {
+    return id >>> 6;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+      .add("permissions", asMap())
+      .toString();
+  }
+}
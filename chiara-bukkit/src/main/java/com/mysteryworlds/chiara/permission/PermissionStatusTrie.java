@@ -0,0 +1,309 @@
+package com.mysteryworlds.chiara.permission;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Persistent hash array mapped trie from interned permission ids to
+ * permission statuses. Every update returns a new trie that shares all
+ * untouched nodes with the previous version, so older versions stay valid and
+ * cost nothing to keep around. Permission ids are dense and unique, so they
+ * are used as their own hash and two keys never collide.
+ */
+final class PermissionStatusTrie {
+  static final PermissionStatusTrie EMPTY = new PermissionStatusTrie(
+    Node.EMPTY,
+    0
+  );
+  private static final PermissionStatus[] STATUSES = PermissionStatus.values();
+  private static final int BITS_PER_LEVEL = 5;
+  private static final int LEVEL_MASK = (1 << BITS_PER_LEVEL) - 1;
+  private final Node root;
+  private final int size;
+
+  private PermissionStatusTrie(Node root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  /**
+   * Get the status stored for the given permission id.
+   *
+   * @param id Permission id.
+   * @return Status or {@code null} if the id isn't present.
+   */
+  PermissionStatus get(int id) {
+    var node = root;
+    for (var shift = 0; ; shift += BITS_PER_LEVEL) {
+      var bit = bitFor(id, shift);
+      if ((node.dataMap & bit) != 0) {
+        var index = node.dataIndex(bit);
+        return node.keys[index] == id ? STATUSES[node.statuses[index]] : null;
+      }
+      if ((node.nodeMap & bit) == 0) {
+        return null;
+      }
+      node = node.nodes[node.nodeIndex(bit)];
+    }
+  }
+
+  PermissionStatusTrie put(int id, PermissionStatus status) {
+    var added = get(id) == null;
+    var newRoot = root.put(id, (byte) status.ordinal(), 0);
+    if (newRoot == root) {
+      return this;
+    }
+    return new PermissionStatusTrie(newRoot, added ? size + 1 : size);
+  }
+
+  PermissionStatusTrie remove(int id) {
+    var newRoot = root.remove(id, 0);
+    if (newRoot == root) {
+      return this;
+    }
+    return new PermissionStatusTrie(newRoot, size - 1);
+  }
+
+  /**
+   * Put all entries of the source trie into this trie. Entries of the source
+   * override existing entries.
+   *
+   * @param source Source trie.
+   * @return Merged trie.
+   */
+  PermissionStatusTrie putAll(PermissionStatusTrie source) {
+    if (source.isEmpty()) {
+      return this;
+    }
+    if (isEmpty()) {
+      return source;
+    }
+    return source.root.putAllInto(this);
+  }
+
+  void forEach(BiConsumer<Permission, PermissionStatus> consumer) {
+    root.forEach(consumer);
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Get the highest permission id in this trie.
+   *
+   * @return Highest id or {@code -1} if the trie is empty.
+   */
+  int maxKey() {
+    return root.maxKey(-1);
+  }
+
+  private static int bitFor(int id, int shift) {
+    return 1 << ((id >>> shift) & LEVEL_MASK);
+  }
+
+  /**
+   * Trie node in compressed form: inline entries and sub nodes are tracked by
+   * two separate bitmaps and stored densely in their arrays.
+   */
+  private static final class Node {
+    private static final Node EMPTY = new Node(
+      0,
+      0,
+      new int[0],
+      new byte[0],
+      new Node[0]
+    );
+    private final int dataMap;
+    private final int nodeMap;
+    private final int[] keys;
+    private final byte[] statuses;
+    private final Node[] nodes;
+
+    private Node(
+      int dataMap,
+      int nodeMap,
+      int[] keys,
+      byte[] statuses,
+      Node[] nodes
+    ) {
+      this.dataMap = dataMap;
+      this.nodeMap = nodeMap;
+      this.keys = keys;
+      this.statuses = statuses;
+      this.nodes = nodes;
+    }
+
+    private int dataIndex(int bit) {
+      return Integer.bitCount(dataMap & (bit - 1));
+    }
+
+    private int nodeIndex(int bit) {
+      return Integer.bitCount(nodeMap & (bit - 1));
+    }
+
+    private Node put(int id, byte status, int shift) {
+      var bit = bitFor(id, shift);
+      if ((dataMap & bit) != 0) {
+        var index = dataIndex(bit);
+        if (keys[index] == id) {
+          if (statuses[index] == status) {
+            return this;
+          }
+          var newStatuses = statuses.clone();
+          newStatuses[index] = status;
+          return new Node(dataMap, nodeMap, keys, newStatuses, nodes);
+        }
+        var subNode = pair(
+          keys[index],
+          statuses[index],
+          id,
+          status,
+          shift + BITS_PER_LEVEL
+        );
+        return withoutData(bit, index).withNode(bit, subNode);
+      }
+      if ((nodeMap & bit) != 0) {
+        var index = nodeIndex(bit);
+        var subNode = nodes[index].put(id, status, shift + BITS_PER_LEVEL);
+        if (subNode == nodes[index]) {
+          return this;
+        }
+        var newNodes = nodes.clone();
+        newNodes[index] = subNode;
+        return new Node(dataMap, nodeMap, keys, statuses, newNodes);
+      }
+      return withData(bit, id, status);
+    }
+
+    private Node remove(int id, int shift) {
+      var bit = bitFor(id, shift);
+      if ((dataMap & bit) != 0) {
+        var index = dataIndex(bit);
+        return keys[index] == id ? withoutData(bit, index) : this;
+      }
+      if ((nodeMap & bit) == 0) {
+        return this;
+      }
+      var index = nodeIndex(bit);
+      var subNode = nodes[index].remove(id, shift + BITS_PER_LEVEL);
+      if (subNode == nodes[index]) {
+        return this;
+      }
+      if (subNode.nodeMap == 0 && subNode.keys.length == 1) {
+        // Pull single remaining entries up to keep the trie canonical.
+        return withoutNode(bit, index)
+          .withData(bit, subNode.keys[0], subNode.statuses[0]);
+      }
+      var newNodes = nodes.clone();
+      newNodes[index] = subNode;
+      return new Node(dataMap, nodeMap, keys, statuses, newNodes);
+    }
+
+    private PermissionStatusTrie putAllInto(PermissionStatusTrie target) {
+      for (var i = 0; i < keys.length; i++) {
+        target = target.put(keys[i], STATUSES[statuses[i]]);
+      }
+      for (var node : nodes) {
+        target = node.putAllInto(target);
+      }
+      return target;
+    }
+
+    private void forEach(BiConsumer<Permission, PermissionStatus> consumer) {
+      for (var i = 0; i < keys.length; i++) {
+        consumer.accept(Permission.byId(keys[i]), STATUSES[statuses[i]]);
+      }
+      for (var node : nodes) {
+        node.forEach(consumer);
+      }
+    }
+
+    private int maxKey(int maxKey) {
+      for (var key : keys) {
+        maxKey = Math.max(maxKey, key);
+      }
+      for (var node : nodes) {
+        maxKey = node.maxKey(maxKey);
+      }
+      return maxKey;
+    }
+
+    private static Node pair(
+      int firstId,
+      byte firstStatus,
+      int secondId,
+      byte secondStatus,
+      int shift
+    ) {
+      var firstBit = bitFor(firstId, shift);
+      var secondBit = bitFor(secondId, shift);
+      if (firstBit == secondBit) {
+        var subNode = pair(
+          firstId,
+          firstStatus,
+          secondId,
+          secondStatus,
+          shift + BITS_PER_LEVEL
+        );
+        return new Node(0, firstBit, new int[0], new byte[0],
+          new Node[]{subNode});
+      }
+      if (Integer.compareUnsigned(firstBit, secondBit) < 0) {
+        return new Node(firstBit | secondBit, 0,
+          new int[]{firstId, secondId},
+          new byte[]{firstStatus, secondStatus}, new Node[0]);
+      }
+      return new Node(firstBit | secondBit, 0,
+        new int[]{secondId, firstId},
+        new byte[]{secondStatus, firstStatus}, new Node[0]);
+    }
+
+    private Node withData(int bit, int id, byte status) {
+      var index = dataIndex(bit);
+      var newKeys = new int[keys.length + 1];
+      var newStatuses = new byte[statuses.length + 1];
+      System.arraycopy(keys, 0, newKeys, 0, index);
+      System.arraycopy(statuses, 0, newStatuses, 0, index);
+      newKeys[index] = id;
+      newStatuses[index] = status;
+      System.arraycopy(keys, index, newKeys, index + 1, keys.length - index);
+      System.arraycopy(statuses, index, newStatuses, index + 1,
+        statuses.length - index);
+      return new Node(dataMap | bit, nodeMap, newKeys, newStatuses, nodes);
+    }
+
+    private Node withoutData(int bit, int index) {
+      var newKeys = new int[keys.length - 1];
+      var newStatuses = new byte[statuses.length - 1];
+      System.arraycopy(keys, 0, newKeys, 0, index);
+      System.arraycopy(statuses, 0, newStatuses, 0, index);
+      System.arraycopy(keys, index + 1, newKeys, index,
+        keys.length - index - 1);
+      System.arraycopy(statuses, index + 1, newStatuses, index,
+        statuses.length - index - 1);
+      return new Node(dataMap & ~bit, nodeMap, newKeys, newStatuses, nodes);
+    }
+
+    private Node withNode(int bit, Node node) {
+      var index = nodeIndex(bit);
+      var newNodes = new Node[nodes.length + 1];
+      System.arraycopy(nodes, 0, newNodes, 0, index);
+      newNodes[index] = node;
+      System.arraycopy(nodes, index, newNodes, index + 1,
+        nodes.length - index);
+      return new Node(dataMap, nodeMap | bit, keys, statuses, newNodes);
+    }
+
+    private Node withoutNode(int bit, int index) {
+      var newNodes = new Node[nodes.length - 1];
+      System.arraycopy(nodes, 0, newNodes, 0, index);
+      System.arraycopy(nodes, index + 1, newNodes, index,
+        nodes.length - index - 1);
+      return new Node(dataMap, nodeMap & ~bit, keys, statuses, newNodes);
+    }
+  }
+}
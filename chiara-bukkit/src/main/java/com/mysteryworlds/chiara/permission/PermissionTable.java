@@ -5,13 +5,20 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
-import org.bukkit.permissions.PermissionAttachment;
 
+/**
+ * Permission table backed by a persistent trie. Updates replace the trie root
+ * instead of mutating shared state, so merged tables share all untouched
+ * nodes with their sources and copies are free. The root is published through
+ * a volatile field, readers on any thread never lock and always see a
+ * complete table.
+ */
 public final class PermissionTable {
-  private final Map<Permission, PermissionStatus> permissions;
+  private volatile PermissionStatusTrie permissions;
 
-  private PermissionTable(Map<Permission, PermissionStatus> permissions) {
+  private PermissionTable(PermissionStatusTrie permissions) {
     this.permissions = permissions;
   }
 
@@ -37,101 +44,133 @@ public final class PermissionTable {
     Map<Permission, PermissionStatus> permissions
   ) {
     Preconditions.checkNotNull(permissions);
-    return new PermissionTable(Maps.newHashMap(permissions));
+    var permissionTable = new PermissionTable(PermissionStatusTrie.EMPTY);
+    permissions.forEach(permissionTable::setStatus);
+    return permissionTable;
   }
 
   public static PermissionTable empty() {
-    return withPermissions(Maps.newHashMap());
+    return withPermissions(Map.of());
   }
 
   /**
-   * Get the status of the given permission.
+   * Get the status of the given permission. An explicitly set node always
+   * wins, otherwise the most specific matching wildcard node decides, so
+   * {@code epic.fly.*} takes precedence over {@code epic.*} and {@code *}.
    *
    * @param permission Permission.
    * @return Permission status.
    */
   public PermissionStatus statusOf(Permission permission) {
     Preconditions.checkNotNull(permission);
-    return permissions.getOrDefault(permission, PermissionStatus.NOT_SET);
+    Preconditions.checkArgument(
+      permission.isInterned(),
+      "Permission isn't interned: %s",
+      permission
+    );
+    var permissions = this.permissions;
+    var status = permissions.get(permission.id());
+    if (status != null) {
+      return status;
+    }
+    return wildcardStatusOf(permissions, permission.wildcardIds());
   }
 
   /**
-   * Merge the source table into this table.
+   * Get the status of a permission by name without interning it. Names that
+   * were never stored only match through their wildcard nodes.
+   *
+   * @param permission Permission name.
+   * @return Permission status.
+   * @see #statusOf(Permission)
+   */
+  public PermissionStatus statusOf(String permission) {
+    Preconditions.checkNotNull(permission);
+    var internedPermission = Permission.lookup(permission);
+    if (internedPermission.isInterned()) {
+      return statusOf(internedPermission);
+    }
+    return wildcardStatusOf(
+      this.permissions,
+      Permission.wildcardIds(permission)
+    );
+  }
+
+  private static PermissionStatus wildcardStatusOf(
+    PermissionStatusTrie permissions,
+    int[] wildcardIds
+  ) {
+    for (var wildcardId : wildcardIds) {
+      var status = permissions.get(wildcardId);
+      if (status != null) {
+        return status;
+      }
+    }
+    return PermissionStatus.NOT_SET;
+  }
+
+  /**
+   * Merge the source table into this table. Neither table is modified, the
+   * result shares its structure with both of them.
    *
    * @param source Source table.
    * @return Target table.
    */
   public PermissionTable merge(PermissionTable source) {
     Preconditions.checkNotNull(source);
-    var permissionTable = PermissionTable.withPermissions(permissions);
-    source.permissions.forEach(permissionTable::setStatus);
-    return permissionTable;
+    return new PermissionTable(permissions.putAll(source.permissions));
   }
 
   /**
    * Update the status of a permission.
    *
-   * @param permission Permission.
+   * @param permission Interned permission, see {@link Permission#of(String)}.
    * @param status     Permission status.
+   * @throws IllegalArgumentException If the permission isn't interned.
    */
-  public void setStatus(Permission permission, PermissionStatus status) {
+  public synchronized void setStatus(
+    Permission permission,
+    PermissionStatus status
+  ) {
     Preconditions.checkNotNull(permission);
     Preconditions.checkNotNull(status);
+    Preconditions.checkArgument(
+      permission.isInterned(),
+      "Permission isn't interned: %s",
+      permission
+    );
     if (status == PermissionStatus.NOT_SET) {
-      unsetPermission(permission);
+      permissions = permissions.remove(permission.id());
     } else {
-      permissions.put(permission, status);
+      permissions = permissions.put(permission.id(), status);
     }
   }
 
-  private void unsetPermission(Permission permission) {
-    permissions.remove(permission);
-  }
-
-  public void apply(PermissionAttachment permissionAttachment) {
-    Preconditions.checkNotNull(permissionAttachment);
-    Map<String, Boolean> permissionsMap = tryExtractPermissionsMap(
-      permissionAttachment);
-    clonePermissions(permissionsMap);
+  public boolean isEmpty() {
+    return permissions.isEmpty();
   }
 
-  private void clonePermissions(Map<String, Boolean> permissionsMap) {
-    permissionsMap.clear();
-    permissions.forEach((permission, status) ->
-      permissionsMap.put(permission.name(), status.booleanValue())
-    );
+  void forEach(BiConsumer<Permission, PermissionStatus> consumer) {
+    permissions.forEach(consumer);
   }
 
-  private Map<String, Boolean> tryExtractPermissionsMap(
-    PermissionAttachment permissionAttachment
-  ) {
-    try {
-      var permissionsField = permissionAttachment.getClass()
-        .getDeclaredField("permissions");
-      permissionsField.setAccessible(true);
-      return (Map<String, Boolean>) permissionsField.get(permissionAttachment);
-    } catch (NoSuchFieldException | IllegalAccessException e) {
-      e.printStackTrace();
-      return Maps.newHashMap();
-    }
-  }
-
-  public boolean isEmpty() {
-    return permissions.isEmpty();
+  int maxId() {
+    return permissions.maxKey();
   }
 
   @Override
   public String toString() {
     return MoreObjects.toStringHelper(this)
-      .add("permissions", permissions)
+      .add("permissions", asMap())
       .toString();
   }
 
   public Map<String, Boolean> asMap() {
-    return permissions.entrySet().stream()
-      .collect(Collectors.toMap(
-        entry -> entry.getKey().name(),
-        entry -> entry.getValue().booleanValue()
-      ));
+    Map<String, Boolean> permissionsMap = Maps
+      .newHashMapWithExpectedSize(permissions.size());
+    permissions.forEach((permission, status) ->
+      permissionsMap.put(permission.name(), status.booleanValue())
+    );
+    return permissionsMap;
   }
 }
@@ -0,0 +1,148 @@
+package com.mysteryworlds.chiara.permission;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable segment trie over the interned wildcard nodes. Every node holds
+ * the ids of the wildcards matching names below it, so the wildcards of a
+ * name are found by walking its segments. Segments are compared as character
+ * ranges of the name, neither the wildcard names nor substrings are built.
+ * The index is rebuilt whenever a wildcard is interned, which only happens
+ * while permissions are stored.
+ */
+final class WildcardIndex {
+  static final WildcardIndex EMPTY = new WildcardIndex(
+    new Node(new int[0], new String[0], new Node[0])
+  );
+  private final Node root;
+
+  private WildcardIndex(Node root) {
+    this.root = root;
+  }
+
+  /**
+   * Build the index of the given wildcard nodes.
+   *
+   * @param wildcards Interned wildcard permissions.
+   * @return Index.
+   */
+  static WildcardIndex of(List<Permission> wildcards) {
+    var root = new NodeBuilder();
+    for (var wildcard : wildcards) {
+      var name = wildcard.name();
+      var node = root;
+      var start = 0;
+      for (var end = name.indexOf('.'); end >= 0;
+        end = name.indexOf('.', start)) {
+        node = node.children.computeIfAbsent(
+          name.substring(start, end),
+          segment -> new NodeBuilder()
+        );
+        start = end + 1;
+      }
+      node.id = wildcard.id();
+    }
+    return new WildcardIndex(root.build(EMPTY.root.ids));
+  }
+
+  /**
+   * Get the ids of the wildcards matching a permission name, most specific
+   * first. For {@code epic.fly.high} these are at most {@code epic.fly.*},
+   * {@code epic.*} and {@code *}. The returned array is shared and must not
+   * be modified.
+   *
+   * @param name Permission name.
+   * @return Wildcard ids.
+   */
+  int[] wildcardIds(String name) {
+    var node = root;
+    var start = 0;
+    for (var end = name.indexOf('.'); end >= 0;
+      end = name.indexOf('.', start)) {
+      var child = node.child(name, start, end);
+      if (child == null) {
+        break;
+      }
+      node = child;
+      start = end + 1;
+    }
+    return node.ids;
+  }
+
+  private static int hash(String name, int start, int end) {
+    var hash = 0;
+    for (var i = start; i < end; i++) {
+      hash = 31 * hash + name.charAt(i);
+    }
+    return hash ^ (hash >>> 16);
+  }
+
+  private static final class Node {
+    private final int[] ids;
+    /**
+     * Open addressing table of the child segments, the length is a power of
+     * two.
+     */
+    private final String[] segments;
+    private final Node[] children;
+
+    private Node(int[] ids, String[] segments, Node[] children) {
+      this.ids = ids;
+      this.segments = segments;
+      this.children = children;
+    }
+
+    private Node child(String name, int start, int end) {
+      if (segments.length == 0) {
+        return null;
+      }
+      var length = end - start;
+      var mask = segments.length - 1;
+      for (var index = hash(name, start, end) & mask; ;
+        index = (index + 1) & mask) {
+        var segment = segments[index];
+        if (segment == null) {
+          return null;
+        }
+        if (segment.length() == length
+          && segment.regionMatches(0, name, start, length)) {
+          return children[index];
+        }
+      }
+    }
+  }
+
+  private static final class NodeBuilder {
+    private final Map<String, NodeBuilder> children = new HashMap<>();
+    private int id = Permission.NO_ID;
+
+    private Node build(int[] parentIds) {
+      var ids = parentIds;
+      if (id != Permission.NO_ID) {
+        ids = new int[parentIds.length + 1];
+        ids[0] = id;
+        System.arraycopy(parentIds, 0, ids, 1, parentIds.length);
+      }
+      if (children.isEmpty()) {
+        return new Node(ids, EMPTY.root.segments, EMPTY.root.children);
+      }
+      // At most half full, so probing always ends at an empty slot.
+      var capacity = Integer.highestOneBit(children.size() * 2) * 2;
+      var segments = new String[capacity];
+      var nodes = new Node[capacity];
+      var mask = capacity - 1;
+      for (var child : children.entrySet()) {
+        var segment = child.getKey();
+        var index = hash(segment, 0, segment.length()) & mask;
+        while (segments[index] != null) {
+          index = (index + 1) & mask;
+        }
+        segments[index] = segment;
+        nodes[index] = child.getValue().build(ids);
+      }
+      return new Node(ids, segments, nodes);
+    }
+  }
+}
@@ -5,6 +5,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public final class WorldPermissionTable {
@@ -13,14 +14,14 @@ public final class WorldPermissionTable {
   private WorldPermissionTable(
     Map<String, PermissionTable> worldPermissions
   ) {
-    this.worldPermissions = worldPermissions;
+    this.worldPermissions = new ConcurrentHashMap<>(worldPermissions);
   }
 
   public static WorldPermissionTable withWorldPermissions(
     Map<String, PermissionTable> worldPermissions
   ) {
     Preconditions.checkNotNull(worldPermissions);
-    return new WorldPermissionTable(Maps.newHashMap(worldPermissions));
+    return new WorldPermissionTable(worldPermissions);
   }
 
   public static WorldPermissionTable withMapWorldPermissions(
@@ -63,12 +64,8 @@ public final class WorldPermissionTable {
     Preconditions.checkNotNull(perm);
     Preconditions.checkNotNull(status);
     Preconditions.checkNotNull(world);
-    var permissionTable = worldPermissions.get(world);
-    if (permissionTable == null) {
-      permissionTable = PermissionTable.empty();
-      worldPermissions.put(world, permissionTable);
-    }
-    permissionTable.setStatus(perm, status);
+    worldPermissions.computeIfAbsent(world, key -> PermissionTable.empty())
+      .setStatus(perm, status);
   }
 
   @Override
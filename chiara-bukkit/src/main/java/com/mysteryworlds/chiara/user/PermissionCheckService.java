@@ -0,0 +1,62 @@
+package com.mysteryworlds.chiara.user;
+
+import com.google.common.base.Preconditions;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Service for plugins that check many permissions of the same user in a row.
+ * Each batch resolves the user and its effective permissions only once.
+ * Registered with the services manager, so it can be looked up by other
+ * plugins.
+ */
+@Singleton
+public final class PermissionCheckService {
+  private final PermissionUserRepository userRepository;
+
+  @Inject
+  PermissionCheckService(PermissionUserRepository userRepository) {
+    this.userRepository = userRepository;
+  }
+
+  /**
+   * Check multiple global permissions of a user.
+   *
+   * @param userId      User id.
+   * @param permissions Permission names.
+   * @return Bit set with bit {@code i} set if the {@code i}-th permission is
+   * allowed. Empty if the user is unknown.
+   */
+  public BitSet hasPermissions(UUID userId, List<String> permissions) {
+    Preconditions.checkNotNull(userId);
+    Preconditions.checkNotNull(permissions);
+    return userRepository.findUser(userId)
+      .map(user -> user.hasPermissions(permissions))
+      .orElseGet(BitSet::new);
+  }
+
+  /**
+   * Check multiple permissions of a user in a world.
+   *
+   * @param userId      User id.
+   * @param permissions Permission names.
+   * @param world       World name.
+   * @return Bit set with bit {@code i} set if the {@code i}-th permission is
+   * allowed. Empty if the user is unknown.
+   */
+  public BitSet hasPermissions(
+    UUID userId,
+    List<String> permissions,
+    String world
+  ) {
+    Preconditions.checkNotNull(userId);
+    Preconditions.checkNotNull(permissions);
+    Preconditions.checkNotNull(world);
+    return userRepository.findUser(userId)
+      .map(user -> user.hasPermissions(permissions, world))
+      .orElseGet(BitSet::new);
+  }
+}
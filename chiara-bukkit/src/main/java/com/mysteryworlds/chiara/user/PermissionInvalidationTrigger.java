@@ -0,0 +1,87 @@
+package com.mysteryworlds.chiara.user;
+
+import com.mysteryworlds.chiara.group.PermissionGroup;
+import com.mysteryworlds.chiara.group.PermissionGroupRepository;
+import com.mysteryworlds.chiara.group.PermissionGroupUpdateEvent;
+import com.mysteryworlds.chiara.group.PermissionGroupUpdateEvent.Change;
+import com.mysteryworlds.chiara.permission.PermissionEntity;
+import java.util.ArrayList;
+import java.util.List;
+import javax.inject.Inject;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+
+/**
+ * Drops cached effective permissions and metadata of everything that inherits
+ * from a group after that group changed. Users and groups invalidate their
+ * own cache when they are changed directly, but they have no idea who
+ * inherits from them. Invalidating only after the change took effect makes
+ * sure no calculation in between caches the previous state.
+ */
+public final class PermissionInvalidationTrigger implements Listener {
+  private final PermissionUserRepository userRepository;
+  private final PermissionGroupRepository groupRepository;
+  private final PermissionUserSessionRegistry sessionRegistry;
+
+  @Inject
+  PermissionInvalidationTrigger(
+    PermissionUserRepository userRepository,
+    PermissionGroupRepository groupRepository,
+    PermissionUserSessionRegistry sessionRegistry
+  ) {
+    this.userRepository = userRepository;
+    this.groupRepository = groupRepository;
+    this.sessionRegistry = sessionRegistry;
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void groupUpdate(PermissionGroupUpdateEvent groupUpdate) {
+    var change = groupUpdate.change();
+    var group = groupUpdate.group();
+    var sessions = sessionRegistry.findSessionsByGroup(group.name());
+    var dependents = findDependents(group, sessions);
+    // Dropping the permissions of a group also drops its cached ancestors.
+    if (change != Change.METADATA) {
+      dependents.forEach(PermissionEntity::invalidateEffectivePermissions);
+    }
+    if (change != Change.PERMISSIONS) {
+      dependents.forEach(PermissionEntity::invalidateEffectiveMetadata);
+    }
+    if (change == Change.INHERITANCE) {
+      sessions.forEach(sessionRegistry::reindex);
+    }
+  }
+
+  /**
+   * Find the loaded groups and users inheriting from a group. Online users
+   * are taken from the group index of their sessions, only the bounded set
+   * of offline users is searched. Dependents are collected before any of
+   * them is invalidated, as invalidating a group drops the ancestors the
+   * lookup relies on.
+   *
+   * @param group    Changed group.
+   * @param sessions Sessions depending on the group.
+   * @return Dependents.
+   */
+  private List<PermissionEntity> findDependents(
+    PermissionGroup group,
+    List<PermissionUserSession> sessions
+  ) {
+    List<PermissionEntity> dependents = new ArrayList<>();
+    for (var candidate : groupRepository.findAll()) {
+      if (candidate.inheritsFrom(group)) {
+        dependents.add(candidate);
+      }
+    }
+    for (var session : sessions) {
+      dependents.add(session.user());
+    }
+    for (var user : userRepository.findOfflineUsers()) {
+      if (user.inheritsFrom(group)) {
+        dependents.add(user);
+      }
+    }
+    return dependents;
+  }
+}
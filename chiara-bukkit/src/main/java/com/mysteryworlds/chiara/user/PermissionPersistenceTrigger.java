@@ -0,0 +1,38 @@
+package com.mysteryworlds.chiara.user;
+
+import com.mysteryworlds.chiara.group.PermissionGroupRepository;
+import com.mysteryworlds.chiara.group.PermissionGroupUpdateEvent;
+import javax.inject.Inject;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+
+/**
+ * Marks users and groups dirty in their repositories after they changed, so
+ * saves can skip everything that didn't change. Marking only after the
+ * change took effect makes sure a save running in between can't take the
+ * mark and write the previous state.
+ */
+public final class PermissionPersistenceTrigger implements Listener {
+  private final PermissionUserRepository userRepository;
+  private final PermissionGroupRepository groupRepository;
+
+  @Inject
+  PermissionPersistenceTrigger(
+    PermissionUserRepository userRepository,
+    PermissionGroupRepository groupRepository
+  ) {
+    this.userRepository = userRepository;
+    this.groupRepository = groupRepository;
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void userUpdate(PermissionUserUpdateEvent userUpdate) {
+    userRepository.markDirty(userUpdate.user());
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void groupUpdate(PermissionGroupUpdateEvent groupUpdate) {
+    groupRepository.markDirty(groupUpdate.group().name());
+  }
+}
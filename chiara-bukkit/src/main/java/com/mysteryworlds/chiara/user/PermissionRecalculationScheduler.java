@@ -0,0 +1,119 @@
+package com.mysteryworlds.chiara.user;
+
+import com.mysteryworlds.chiara.user.PermissionUserSession.Calculation;
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+
+/**
+ * Coalesces permission recalculations of online players. Changes only mark the
+ * affected users dirty and all dirty sessions are recalculated once after the
+ * configured interval, so a bulk edit costs one recalculation per player
+ * instead of one per change. The flush runs after the change events completed
+ * and therefore always sees the changed state. Effective permissions are
+ * calculated on the async executor, only the attachment updates run on the
+ * main thread. The names of the players are refreshed in the same pass, so
+ * prefix and suffix changes are batched the same way.
+ */
+@Singleton
+public final class PermissionRecalculationScheduler {
+  private final Set<UUID> dirtyUsers = ConcurrentHashMap.newKeySet();
+  private final AtomicBoolean flushScheduled = new AtomicBoolean();
+  private final Plugin plugin;
+  private final BukkitScheduler scheduler;
+  private final PermissionUserSessionRegistry sessionRegistry;
+  private final Executor asyncExecutor;
+  private final Executor mainThreadExecutor;
+  private final long interval;
+
+  @Inject
+  PermissionRecalculationScheduler(
+    Plugin plugin,
+    BukkitScheduler scheduler,
+    PermissionUserSessionRegistry sessionRegistry,
+    @Named("asyncExecutor") Executor asyncExecutor,
+    @Named("mainThreadExecutor") Executor mainThreadExecutor,
+    @Named("recalculationInterval") long interval
+  ) {
+    this.plugin = plugin;
+    this.scheduler = scheduler;
+    this.sessionRegistry = sessionRegistry;
+    this.asyncExecutor = asyncExecutor;
+    this.mainThreadExecutor = mainThreadExecutor;
+    this.interval = interval;
+  }
+
+  /**
+   * Mark the session of a user dirty. Safe to call from any thread. If the
+   * flush can't be scheduled, e.g. while the plugin is disabled, the user
+   * stays dirty and the next call tries again.
+   *
+   * @param userId User id.
+   */
+  public void markDirty(UUID userId) {
+    Preconditions.checkNotNull(userId);
+    dirtyUsers.add(userId);
+    if (flushScheduled.compareAndSet(false, true)) {
+      try {
+        scheduler.runTaskLater(plugin, this::flush, interval);
+      } catch (RuntimeException e) {
+        flushScheduled.set(false);
+        e.printStackTrace();
+      }
+    }
+  }
+
+  /**
+   * Recalculate every dirty session once.
+   */
+  void flush() {
+    flushScheduled.set(false);
+    List<Calculation> calculations = new ArrayList<>(dirtyUsers.size());
+    var iterator = dirtyUsers.iterator();
+    while (iterator.hasNext()) {
+      var userId = iterator.next();
+      iterator.remove();
+      sessionRegistry.findSession(userId)
+        .ifPresent(session -> calculations.add(session.beginCalculation()));
+    }
+    if (!calculations.isEmpty()) {
+      asyncExecutor.execute(() -> calculate(calculations));
+    }
+  }
+
+  /**
+   * Calculate every pending calculation. A failed calculation is logged and
+   * not applied, the session is recalculated on its next change.
+   */
+  private void calculate(List<Calculation> calculations) {
+    for (var calculation : calculations) {
+      try {
+        calculation.calculate();
+      } catch (RuntimeException e) {
+        e.printStackTrace();
+      }
+    }
+    mainThreadExecutor.execute(() -> apply(calculations));
+  }
+
+  private void apply(List<Calculation> calculations) {
+    for (var calculation : calculations) {
+      var session = calculation.session();
+      var currentSession = sessionRegistry.findSession(session.user().id());
+      if (currentSession.orElse(null) == session) {
+        calculation.apply();
+        session.refreshNaming();
+      }
+    }
+  }
+}
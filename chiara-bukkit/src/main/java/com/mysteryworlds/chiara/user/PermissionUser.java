@@ -1,12 +1,15 @@
 package com.mysteryworlds.chiara.user;
 
 import com.mysteryworlds.chiara.group.GroupTable;
+import com.mysteryworlds.chiara.group.PermissionGroup;
 import com.mysteryworlds.chiara.permission.Permission;
 import com.mysteryworlds.chiara.permission.PermissionEntity;
 import com.mysteryworlds.chiara.permission.PermissionStatus;
 import com.mysteryworlds.chiara.permission.PermissionTable;
 import com.mysteryworlds.chiara.permission.WorldPermissionTable;
+import com.mysteryworlds.chiara.user.PermissionUserUpdateEvent.Change;
 import com.google.common.base.Preconditions;
+import java.util.List;
 import java.util.UUID;
 import org.bukkit.plugin.PluginManager;
 
@@ -31,6 +34,16 @@ public final class PermissionUser extends PermissionEntity {
     return id;
   }
 
+  /**
+   * Get the groups in the order they were added. The order decides which
+   * group wins on conflicting permissions and metadata.
+   *
+   * @return Groups.
+   */
+  List<PermissionGroup> groupsInOrder() {
+    return groupTable().asList();
+  }
+
   @Override
   public boolean setPermissionStatus(
     Permission permission,
@@ -42,7 +55,9 @@ public final class PermissionUser extends PermissionEntity {
     if (permissionChange.isCancelled()) {
       return false;
     }
-    return super.setPermissionStatus(permission, status);
+    var changed = super.setPermissionStatus(permission, status);
+    callUpdateEvent(Change.PERMISSIONS);
+    return changed;
   }
 
   @Override
@@ -58,7 +73,63 @@ public final class PermissionUser extends PermissionEntity {
     if (permissionChange.isCancelled()) {
       return false;
     }
-    return super.setWorldPermissionStatus(permission, status, world);
+    var changed = super.setWorldPermissionStatus(permission, status, world);
+    callUpdateEvent(Change.PERMISSIONS);
+    return changed;
+  }
+
+  @Override
+  public boolean addGroup(PermissionGroup permissionGroup) {
+    Preconditions.checkNotNull(permissionGroup);
+    var groupChange = callGroupChangeEvent(permissionGroup, true);
+    if (groupChange.isCancelled()) {
+      return false;
+    }
+    var added = super.addGroup(permissionGroup);
+    callUpdateEvent(Change.GROUPS);
+    return added;
+  }
+
+  @Override
+  public boolean removeGroup(PermissionGroup permissionGroup) {
+    Preconditions.checkNotNull(permissionGroup);
+    var groupChange = callGroupChangeEvent(permissionGroup, false);
+    if (groupChange.isCancelled()) {
+      return false;
+    }
+    var removed = super.removeGroup(permissionGroup);
+    callUpdateEvent(Change.GROUPS);
+    return removed;
+  }
+
+  @Override
+  public void metadata(String metaKey, Object value) {
+    Preconditions.checkNotNull(metaKey);
+    Preconditions.checkNotNull(value);
+    var metadataChange = PermissionUserMetadataChangeEvent.of(
+      this,
+      metaKey,
+      value
+    );
+    pluginManager.callEvent(metadataChange);
+    if (metadataChange.isCancelled()) {
+      return;
+    }
+    super.metadata(metaKey, value);
+    callUpdateEvent(Change.METADATA);
+  }
+
+  private void callUpdateEvent(Change change) {
+    pluginManager.callEvent(PermissionUserUpdateEvent.of(this, change));
+  }
+
+  private PermissionUserGroupChangeEvent callGroupChangeEvent(
+    PermissionGroup group,
+    boolean added
+  ) {
+    var groupChange = PermissionUserGroupChangeEvent.of(this, group, added);
+    pluginManager.callEvent(groupChange);
+    return groupChange;
   }
 
   private PermissionUserChangeEvent callPermissionChangeEvent(
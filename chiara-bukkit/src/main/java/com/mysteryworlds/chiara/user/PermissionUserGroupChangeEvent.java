@@ -0,0 +1,44 @@
+package com.mysteryworlds.chiara.user;
+
+import com.mysteryworlds.chiara.group.PermissionGroup;
+import com.mysteryworlds.chiara.permission.GroupMembershipChangeEvent;
+import com.google.common.base.Preconditions;
+import org.bukkit.event.HandlerList;
+
+public final class PermissionUserGroupChangeEvent extends
+  GroupMembershipChangeEvent {
+  private static final HandlerList HANDLER_LIST = new HandlerList();
+  private final PermissionUser user;
+
+  private PermissionUserGroupChangeEvent(
+    PermissionUser user,
+    PermissionGroup group,
+    boolean added
+  ) {
+    super(group, added);
+    this.user = user;
+  }
+
+  public static PermissionUserGroupChangeEvent of(
+    PermissionUser user,
+    PermissionGroup group,
+    boolean added
+  ) {
+    Preconditions.checkNotNull(user);
+    Preconditions.checkNotNull(group);
+    return new PermissionUserGroupChangeEvent(user, group, added);
+  }
+
+  public static HandlerList getHandlerList() {
+    return HANDLER_LIST;
+  }
+
+  public PermissionUser user() {
+    return user;
+  }
+
+  @Override
+  public HandlerList getHandlers() {
+    return getHandlerList();
+  }
+}
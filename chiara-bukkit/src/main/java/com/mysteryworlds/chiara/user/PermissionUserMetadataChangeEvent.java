@@ -0,0 +1,67 @@
+package com.mysteryworlds.chiara.user;
+
+import com.google.common.base.Preconditions;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+
+public final class PermissionUserMetadataChangeEvent extends Event implements
+  Cancellable {
+  private static final HandlerList HANDLER_LIST = new HandlerList();
+  private final PermissionUser user;
+  private final String metaKey;
+  private final Object value;
+  private boolean cancelled;
+
+  private PermissionUserMetadataChangeEvent(
+    PermissionUser user,
+    String metaKey,
+    Object value
+  ) {
+    this.user = user;
+    this.metaKey = metaKey;
+    this.value = value;
+  }
+
+  public static PermissionUserMetadataChangeEvent of(
+    PermissionUser user,
+    String metaKey,
+    Object value
+  ) {
+    Preconditions.checkNotNull(user);
+    Preconditions.checkNotNull(metaKey);
+    Preconditions.checkNotNull(value);
+    return new PermissionUserMetadataChangeEvent(user, metaKey, value);
+  }
+
+  public static HandlerList getHandlerList() {
+    return HANDLER_LIST;
+  }
+
+  public PermissionUser user() {
+    return user;
+  }
+
+  public String metaKey() {
+    return metaKey;
+  }
+
+  public Object value() {
+    return value;
+  }
+
+  @Override
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  @Override
+  public void setCancelled(boolean cancelled) {
+    this.cancelled = cancelled;
+  }
+
+  @Override
+  public HandlerList getHandlers() {
+    return getHandlerList();
+  }
+}
@@ -1,6 +1,12 @@
 package com.mysteryworlds.chiara.user;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mysteryworlds.chiara.AtomicFiles;
+import com.mysteryworlds.chiara.ConfigJournal;
+import com.mysteryworlds.chiara.ConfigSnapshot;
+import com.mysteryworlds.chiara.ConfigSnapshot.Codec;
+import com.mysteryworlds.chiara.ConfigSnapshot.SnapshotReader;
+import com.mysteryworlds.chiara.ConfigSnapshot.SnapshotWriter;
 import com.mysteryworlds.chiara.group.GroupTable;
 import com.mysteryworlds.chiara.group.PermissionGroup;
 import com.mysteryworlds.chiara.group.PermissionGroupRepository;
@@ -9,65 +15,269 @@ import com.mysteryworlds.chiara.permission.PermissionTable;
 import com.mysteryworlds.chiara.permission.WorldPermissionTable;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import org.bukkit.Bukkit;
 
+/**
+ * Users stored as one file per user in the users folder. Users are loaded on
+ * first access and written back when they are unloaded or changed. Online
+ * users stay in memory until they quit, offline users looked up by other
+ * plugins are kept in a bounded cache that evicts the least recently used.
+ */
 @Singleton
 public final class PermissionUserRepository {
-  private final Map<UUID, PermissionUser> users = new ConcurrentHashMap<>();
+  private static final String USER_FILE_SUFFIX = ".yml";
+  private static final String MIGRATED_SUFFIX = ".migrated";
+  private static final int SNAPSHOT_VERSION = 1;
+  private final Map<UUID, PermissionUser> onlineUsers =
+    new ConcurrentHashMap<>();
+  private final Cache<UUID, PermissionUser> offlineUsers;
+  /**
+   * Index from lower case player name to user id, fed by joining players.
+   */
+  private final Map<String, UUID> userIdsByName = new ConcurrentHashMap<>();
+  /**
+   * Users changed since they were last written. They are referenced here
+   * until written, even if they were evicted in the meantime.
+   */
+  private final Map<UUID, PermissionUser> changedUsers =
+    new ConcurrentHashMap<>();
+  /**
+   * Users taken from the changed users whose write didn't complete yet. Their
+   * files may still be outdated.
+   */
+  private final Map<UUID, PermissionUser> writingUsers =
+    new ConcurrentHashMap<>();
+  private final AtomicBoolean userNamesDirty = new AtomicBoolean();
   private final String defaultGroupName;
   private final PermissionGroupRepository groupRepository;
   private final PermissionUserFactory userFactory;
   private final ObjectMapper objectMapper;
   private final Path usersPath;
+  private final Path usersFolder;
+  private final Path userNamesPath;
+  private final Executor saveExecutor;
+  private final ConfigSnapshot<PermissionUserNamesConfig> userNamesSnapshot;
+  private final boolean configSnapshots;
 
   @Inject
-  private PermissionUserRepository(
+  PermissionUserRepository(
     @Named("defaultGroupName") String defaultGroupName,
     PermissionGroupRepository groupRepository,
     PermissionUserFactory userFactory,
     ObjectMapper objectMapper,
-    @UserConfig Path usersPath
+    @UserConfig Path usersPath,
+    @UsersFolder Path usersFolder,
+    @UserNamesConfig Path userNamesPath,
+    @Named("saveExecutor") Executor saveExecutor,
+    @Named("offlineUserCacheSize") long offlineUserCacheSize,
+    @Named("configSnapshots") boolean configSnapshots
   ) {
     this.defaultGroupName = defaultGroupName;
     this.groupRepository = groupRepository;
     this.userFactory = userFactory;
     this.objectMapper = objectMapper;
     this.usersPath = usersPath;
+    this.usersFolder = usersFolder;
+    this.userNamesPath = userNamesPath;
+    this.saveExecutor = saveExecutor;
+    this.userNamesSnapshot = ConfigSnapshot.forConfig(
+      userNamesPath,
+      SNAPSHOT_VERSION,
+      new PermissionUserNamesConfigCodec()
+    );
+    this.configSnapshots = configSnapshots;
+    this.offlineUsers = CacheBuilder.newBuilder()
+      .maximumSize(offlineUserCacheSize)
+      .removalListener(this::offlineUserRemoved)
+      .build();
+  }
+
+  /**
+   * Get the users held in memory that aren't online. This includes changed
+   * users that were evicted but aren't written yet, as loading them again
+   * returns the same instance.
+   *
+   * @return Offline users.
+   */
+  public Set<PermissionUser> findOfflineUsers() {
+    var users = Sets.newHashSet(offlineUsers.asMap().values());
+    users.addAll(changedUsers.values());
+    users.addAll(writingUsers.values());
+    users.removeIf(user -> onlineUsers.get(user.id()) == user);
+    return Collections.unmodifiableSet(users);
   }
 
+  /**
+   * Find a user, loading only its own file if it isn't held in memory yet,
+   * e.g. for permission checks of offline players. Loaded users are kept in
+   * the offline user cache. Unlike {@link #findOrCreateUser(UUID)}, users
+   * without a file aren't created.
+   *
+   * @param playerUniqueId User id.
+   * @return User if it is loaded or has a file.
+   * @throws UncheckedIOException If the file of the user can't be read.
+   */
   public Optional<PermissionUser> findUser(UUID playerUniqueId) {
     Preconditions.checkNotNull(playerUniqueId);
-    return Optional.ofNullable(users.get(playerUniqueId));
+    var user = onlineUsers.get(playerUniqueId);
+    if (user != null) {
+      return Optional.of(user);
+    }
+    return Optional.ofNullable(offlineUsers.asMap().computeIfAbsent(
+      playerUniqueId,
+      userId -> loadUser(userId).orElse(null)
+    ));
   }
 
   public PermissionUser findOrCreateUser(String name) {
     Preconditions.checkNotNull(name);
-    var offlinePlayer = Bukkit.getOfflinePlayer(name);
-    return findOrCreateUser(offlinePlayer.getUniqueId());
+    return findOrCreateUser(findUserId(name));
+  }
+
+  /**
+   * Find the id of a player by name, ignoring case. Players that joined
+   * before are resolved from the name index, only unknown names are looked
+   * up through bukkit, which may block.
+   *
+   * @param name Player name.
+   * @return Player id.
+   */
+  public UUID findUserId(String name) {
+    Preconditions.checkNotNull(name);
+    var userId = userIdsByName.get(normalizeName(name));
+    if (userId != null) {
+      return userId;
+    }
+    return Bukkit.getOfflinePlayer(name).getUniqueId();
+  }
+
+  /**
+   * Remember the current name of a player.
+   *
+   * @param userId Player id.
+   * @param name   Player name.
+   */
+  public void updateUserName(UUID userId, String name) {
+    Preconditions.checkNotNull(userId);
+    Preconditions.checkNotNull(name);
+    var previousUserId = userIdsByName.put(normalizeName(name), userId);
+    if (!userId.equals(previousUserId)) {
+      userNamesDirty.set(true);
+    }
+  }
+
+  private static String normalizeName(String name) {
+    return name.toLowerCase(Locale.ROOT);
   }
 
+  /**
+   * Get a user, loading it from its file if it isn't held in memory yet.
+   * Users without a file are created with the default group. The file is
+   * read on the calling thread, so loading should happen off the main thread
+   * where possible, e.g. while the player logs in.
+   *
+   * @param uniqueId User id.
+   * @return User.
+   * @throws UncheckedIOException If the file of the user can't be read.
+   */
   public PermissionUser findOrCreateUser(UUID uniqueId) {
     Preconditions.checkNotNull(uniqueId);
-    return users.computeIfAbsent(uniqueId, this::createUser);
+    var user = onlineUsers.get(uniqueId);
+    if (user != null) {
+      return user;
+    }
+    return offlineUsers.asMap()
+      .computeIfAbsent(uniqueId, this::loadOrCreateUser);
+  }
+
+  /**
+   * Get a user and keep it in memory until it is unloaded, regardless of the
+   * offline user cache.
+   *
+   * @param uniqueId User id.
+   * @return User.
+   * @throws UncheckedIOException If the file of the user can't be read.
+   * @see #findOrCreateUser(UUID)
+   */
+  public PermissionUser loadOnlineUser(UUID uniqueId) {
+    Preconditions.checkNotNull(uniqueId);
+    return onlineUsers.computeIfAbsent(uniqueId, userId -> {
+      var user = findOrCreateUser(userId);
+      offlineUsers.invalidate(userId);
+      return user;
+    });
+  }
+
+  private PermissionUser loadOrCreateUser(UUID uniqueId) {
+    return loadUser(uniqueId).orElseGet(() -> createUser(uniqueId));
+  }
+
+  private Optional<PermissionUser> loadUser(UUID uniqueId) {
+    // A changed user that was evicted before it was written is more recent
+    // than its file.
+    var changedUser = changedUsers.get(uniqueId);
+    if (changedUser == null) {
+      changedUser = writingUsers.get(uniqueId);
+    }
+    if (changedUser != null) {
+      return Optional.of(changedUser);
+    }
+    return readUserEntry(uniqueId).map(entry -> readUser(uniqueId, entry));
+  }
+
+  private Optional<PermissionUserConfigEntry> readUserEntry(UUID uniqueId) {
+    var userPath = userPath(uniqueId);
+    if (Files.notExists(userPath)) {
+      return Optional.empty();
+    }
+    try {
+      var content = Files.readString(userPath);
+      return Optional.of(objectMapper.readValue(
+        content,
+        PermissionUserConfigEntry.class
+      ));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private Path userPath(UUID uniqueId) {
+    return usersFolder.resolve(uniqueId + USER_FILE_SUFFIX);
   }
 
   private PermissionUser createUser(UUID uniqueId) {
     Preconditions.checkNotNull(uniqueId);
     var defaultGroupTable = createDefaultGroupTable();
+    // Not marked dirty, a user without a file is read as this default user,
+    // so lookups of unknown players don't leave files behind.
     return userFactory.createUser(
       uniqueId,
       PermissionTable.empty(),
@@ -86,26 +296,160 @@ public final class PermissionUserRepository {
     );
   }
 
+  /**
+   * Mark a user as changed, so the next autosave writes it.
+   *
+   * @param user User.
+   */
+  public void markDirty(PermissionUser user) {
+    Preconditions.checkNotNull(user);
+    changedUsers.put(user.id(), user);
+  }
+
+  /**
+   * Write an online user back to its file and drop it from memory.
+   *
+   * @param userId User id.
+   * @return Future completed once the user is written.
+   */
+  public CompletableFuture<Void> unloadUser(UUID userId) {
+    Preconditions.checkNotNull(userId);
+    var user = onlineUsers.remove(userId);
+    if (user == null) {
+      return CompletableFuture.completedFuture(null);
+    }
+    writingUsers.put(userId, user);
+    changedUsers.remove(userId, user);
+    return writeUserAsync(user);
+  }
+
+  private void offlineUserRemoved(
+    RemovalNotification<UUID, PermissionUser> removal
+  ) {
+    if (!removal.wasEvicted()) {
+      return;
+    }
+    var user = removal.getValue();
+    if (user != null && beginWrite(user)) {
+      writeUserAsync(user);
+    }
+  }
+
+  /**
+   * Move a changed user to the users being written. It is added there first,
+   * so loads that check both never fall back to its outdated file.
+   *
+   * @param user User.
+   * @return If the user was changed and has to be written.
+   */
+  private boolean beginWrite(PermissionUser user) {
+    writingUsers.put(user.id(), user);
+    if (changedUsers.remove(user.id(), user)) {
+      return true;
+    }
+    writingUsers.remove(user.id(), user);
+    return false;
+  }
+
+  private CompletableFuture<Void> writeUserAsync(PermissionUser user) {
+    return CompletableFuture
+      .runAsync(() -> completeWrite(user), saveExecutor);
+  }
+
+  private void completeWrite(PermissionUser user) {
+    try {
+      writeUser(user);
+    } catch (IOException e) {
+      changedUsers.putIfAbsent(user.id(), user);
+      e.printStackTrace();
+    } finally {
+      writingUsers.remove(user.id(), user);
+    }
+  }
+
+  /**
+   * Load the user names and migrate a users config of the former single file
+   * layout.
+   *
+   * @throws UncheckedIOException If the users config can't be migrated. The
+   *                              config is kept, running without it would let
+   *                              the next migration overwrite changed users.
+   */
   public void load() {
     try {
-      var content = Files.readString(usersPath);
-      var usersConfig = objectMapper.readValue(
-        content,
-        PermissionUserConfig.class
-      );
-      readUsers(usersConfig);
+      Files.createDirectories(usersFolder);
+      migrateUsersConfig();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Couldn't migrate " + usersPath, e);
+    }
+    try {
+      loadUserNames();
     } catch (IOException e) {
       e.printStackTrace();
     }
   }
 
-  private void readUsers(PermissionUserConfig groupConfig) {
-    System.out.println(groupConfig);
-    var userEntries = groupConfig.getUsers().entrySet();
-    for (var userEntry : userEntries) {
-      var user = readUser(userEntry.getKey(), userEntry.getValue());
-      users.put(userEntry.getKey(), user);
+  /**
+   * Split a users config of the former single file layout into one file per
+   * user. The config is only renamed with a {@code .migrated} suffix once
+   * every user was written, so a failed migration is repeated on next load.
+   *
+   * @throws IOException If the config can't be read or a user can't be
+   *                     written.
+   */
+  private void migrateUsersConfig() throws IOException {
+    if (Files.notExists(usersPath)) {
+      return;
+    }
+    var content = Files.readString(usersPath);
+    var usersConfig = objectMapper.readValue(
+      content,
+      PermissionUserConfig.class
+    );
+    var journal = ConfigJournal.forConfig(
+      usersPath,
+      objectMapper,
+      PermissionUserConfig.class
+    );
+    for (var document : journal.read()) {
+      usersConfig.getUsers().putAll(document.getUsers());
+    }
+    for (var userEntry : usersConfig.getUsers().entrySet()) {
+      AtomicFiles.writeString(
+        userPath(userEntry.getKey()),
+        objectMapper.writeValueAsString(userEntry.getValue())
+      );
+    }
+    Files.move(
+      usersPath,
+      usersPath.resolveSibling(usersPath.getFileName() + MIGRATED_SUFFIX),
+      StandardCopyOption.REPLACE_EXISTING
+    );
+    journal.delete();
+  }
+
+  private void loadUserNames() throws IOException {
+    if (Files.notExists(userNamesPath)) {
+      return;
+    }
+    var content = Files.readAllBytes(userNamesPath);
+    userIdsByName.putAll(readUserNamesConfig(content).getNames());
+  }
+
+  private PermissionUserNamesConfig readUserNamesConfig(byte[] content)
+    throws IOException {
+    if (configSnapshots) {
+      var snapshotConfig = userNamesSnapshot.read(content);
+      if (snapshotConfig.isPresent()) {
+        return snapshotConfig.get();
+      }
     }
+    var userNamesConfig = objectMapper.readValue(
+      new String(content, StandardCharsets.UTF_8),
+      PermissionUserNamesConfig.class
+    );
+    writeUserNamesSnapshot(content, userNamesConfig);
+    return userNamesConfig;
   }
 
   private PermissionUser readUser(
@@ -128,22 +472,75 @@ public final class PermissionUserRepository {
       .collect(Collectors.toList());
   }
 
-  public void save() {
-    var userConfig = writeUserConfig();
+  /**
+   * Write the users changed since the last autosave on the save executor.
+   * Every user has its own file, so only the changed users are written.
+   *
+   * @return Future completed once the changes are written.
+   */
+  public CompletableFuture<Void> autosave() {
+    if (changedUsers.isEmpty()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return CompletableFuture.runAsync(this::writeChangedUsers, saveExecutor);
+  }
+
+  private void writeChangedUsers() {
+    for (var user : List.copyOf(changedUsers.values())) {
+      if (beginWrite(user)) {
+        completeWrite(user);
+      }
+    }
+  }
+
+  private void writeUser(PermissionUser user) throws IOException {
+    var configEntry = PermissionUserConfigEntry.fromUser(user);
+    AtomicFiles.writeString(
+      userPath(user.id()),
+      objectMapper.writeValueAsString(configEntry)
+    );
+  }
+
+  /**
+   * Write the changed users and the name index on the save executor. Files
+   * are replaced atomically, so a crash while saving leaves the previous
+   * files intact.
+   *
+   * @return Future completed once everything is written.
+   */
+  public CompletableFuture<Void> save() {
+    var userNamesSave = userNamesDirty.getAndSet(false)
+      ? CompletableFuture.runAsync(this::writeUserNames, saveExecutor)
+      : CompletableFuture.<Void>completedFuture(null);
+    return CompletableFuture.allOf(autosave(), userNamesSave);
+  }
+
+  private void writeUserNames() {
+    var userNamesConfig = PermissionUserNamesConfig.withNames(userIdsByName);
     try {
-      var content = objectMapper.writeValueAsString(userConfig);
-      Files.writeString(usersPath, content);
+      var content = objectMapper.writeValueAsString(userNamesConfig)
+        .getBytes(StandardCharsets.UTF_8);
+      AtomicFiles.write(userNamesPath, content);
+      writeUserNamesSnapshot(content, userNamesConfig);
     } catch (IOException e) {
+      userNamesDirty.set(true);
       e.printStackTrace();
     }
   }
 
-  private PermissionUserConfig writeUserConfig() {
-    var configEntries = users.values().stream().collect(Collectors.toMap(
-      PermissionUser::id,
-      PermissionUserConfigEntry::fromUser
-    ));
-    return PermissionUserConfig.withEntries(configEntries);
+  private void writeUserNamesSnapshot(
+    byte[] source,
+    PermissionUserNamesConfig userNamesConfig
+  ) {
+    if (!configSnapshots) {
+      return;
+    }
+    try {
+      userNamesSnapshot.write(source, userNamesConfig);
+    } catch (IOException e) {
+      // Without a matching snapshot the names are parsed instead.
+      e.printStackTrace();
+    }
   }
 
   public static final class PermissionUserConfig {
@@ -178,6 +575,29 @@ public final class PermissionUserRepository {
     }
   }
 
+  public static final class PermissionUserNamesConfig {
+    private Map<String, UUID> names = new HashMap<>();
+
+    public PermissionUserNamesConfig() {
+    }
+
+    public PermissionUserNamesConfig(Map<String, UUID> names) {
+      this.names = names;
+    }
+
+    public static PermissionUserNamesConfig withNames(Map<String, UUID> names) {
+      return new PermissionUserNamesConfig(new HashMap<>(names));
+    }
+
+    public Map<String, UUID> getNames() {
+      return names;
+    }
+
+    public void setNames(Map<String, UUID> names) {
+      this.names = names;
+    }
+  }
+
   public static final class PermissionUserConfigEntry {
     private Map<String, Boolean> permissions = new HashMap<>();
     private Map<String, Map<String, Boolean>> worlds = new HashMap<>();
@@ -203,7 +623,7 @@ public final class PermissionUserRepository {
       return new PermissionUserConfigEntry(
         user.basePermissions().asMap(),
         user.worldPermissions().asMap(),
-        user.groups().stream().map(PermissionGroup::name)
+        user.groupsInOrder().stream().map(PermissionGroup::name)
           .collect(Collectors.toList()),
         user.metadata()
       );
@@ -253,4 +673,36 @@ public final class PermissionUserRepository {
         .toString();
     }
   }
+
+  /**
+   * Snapshot encoding of the name index, storing ids as two longs.
+   */
+  private static final class PermissionUserNamesConfigCodec implements
+    Codec<PermissionUserNamesConfig> {
+    @Override
+    public void write(PermissionUserNamesConfig value, SnapshotWriter writer)
+      throws IOException {
+      var names = value.getNames();
+      writer.writeVarInt(names.size());
+      for (var nameEntry : names.entrySet()) {
+        writer.writeString(nameEntry.getKey());
+        writer.writeLong(nameEntry.getValue().getMostSignificantBits());
+        writer.writeLong(nameEntry.getValue().getLeastSignificantBits());
+      }
+    }
+
+    @Override
+    public PermissionUserNamesConfig read(SnapshotReader reader)
+      throws IOException {
+      var nameCount = reader.readVarInt();
+      Map<String, UUID> names = Maps.newHashMapWithExpectedSize(nameCount);
+      for (var i = 0; i < nameCount; i++) {
+        names.put(
+          reader.readString(),
+          new UUID(reader.readLong(), reader.readLong())
+        );
+      }
+      return new PermissionUserNamesConfig(names);
+    }
+  }
 }
@@ -1,6 +1,6 @@
 package com.mysteryworlds.chiara.user;
 
-import com.mysteryworlds.chiara.permission.PermissionTable;
+import com.mysteryworlds.chiara.permission.PermissionSnapshot;
 import java.io.Closeable;
 import net.milkbowl.vault.chat.Chat;
 import org.bukkit.ChatColor;
@@ -12,6 +12,12 @@ public final class PermissionUserSession implements Closeable {
   private final Player player;
   private final PermissionUser permissionUser;
   private final PermissionAttachment permissionAttachment;
+  private PermissionSnapshot appliedPermissions = PermissionSnapshot.empty();
+  private volatile long calculationVersion;
+  private String namingPrefix;
+  private String namingSuffix;
+  private String namingPlayerName;
+  private String renderedName;
 
   PermissionUserSession(
     Chat chat,
@@ -25,15 +31,68 @@ public final class PermissionUserSession implements Closeable {
     this.permissionAttachment = permissionAttachment;
   }
 
+  /**
+   * Bring the attachment up to date with the effective permissions. Only
+   * nodes that changed since the last recalculation are written, and the
+   * player is only recalculated if there was any change at all.
+   */
   public void recalculatePermissions() {
-    var permissions = calculatePermissions();
-    permissions.apply(permissionAttachment);
-    player.recalculatePermissions();
+    calculationVersion++;
+    applyPermissions(calculatePermissions());
   }
 
-  private PermissionTable calculatePermissions() {
+  private PermissionSnapshot calculatePermissions() {
     var world = player.getWorld().getName();
-    return permissionUser.calculateEffectivePermissions(world);
+    return permissionUser.effectivePermissions(world);
+  }
+
+  private void applyPermissions(PermissionSnapshot permissions) {
+    var changed = permissions.apply(permissionAttachment, appliedPermissions);
+    appliedPermissions = permissions;
+    if (changed) {
+      player.recalculatePermissions();
+    }
+  }
+
+  /**
+   * Begin a recalculation whose effective permissions are calculated off the
+   * main thread. Has to be called on the main thread, as it reads the world
+   * of the player. Any later recalculation supersedes this one.
+   *
+   * @return Pending calculation.
+   */
+  Calculation beginCalculation() {
+    var world = player.getWorld().getName();
+    return new Calculation(world, ++calculationVersion);
+  }
+
+  /**
+   * Recalculation split into a calculation stage that may run on any thread
+   * and an apply stage that has to run on the main thread.
+   */
+  final class Calculation {
+    private final String world;
+    private final long version;
+    private PermissionSnapshot permissions;
+
+    private Calculation(String world, long version) {
+      this.world = world;
+      this.version = version;
+    }
+
+    PermissionUserSession session() {
+      return PermissionUserSession.this;
+    }
+
+    void calculate() {
+      permissions = permissionUser.effectivePermissions(world);
+    }
+
+    void apply() {
+      if (permissions != null && version == calculationVersion) {
+        applyPermissions(permissions);
+      }
+    }
   }
 
   @Override
@@ -45,17 +104,36 @@ public final class PermissionUserSession implements Closeable {
     return permissionUser;
   }
 
+  /**
+   * Update the custom, display and player list name of the player. The name
+   * is only rendered again if prefix, suffix or player name changed, and the
+   * player is only updated if the rendered name differs from the last one, as
+   * every update is sent to all viewers. Has to be called on the main thread.
+   */
   public void refreshNaming() {
     var playerPrefix = chat.getPlayerPrefix(player);
     var playerSuffix = chat.getPlayerSuffix(player);
-    String qualifiedName = String.format(
-      "%s%s%s",
-      playerPrefix,
-      player.getName(),
-      playerSuffix
+    var playerName = player.getName();
+    if (renderedName != null
+      && playerPrefix.equals(namingPrefix)
+      && playerSuffix.equals(namingSuffix)
+      && playerName.equals(namingPlayerName)) {
+      return;
+    }
+    namingPrefix = playerPrefix;
+    namingSuffix = playerSuffix;
+    namingPlayerName = playerName;
+    var qualifiedName = ChatColor.translateAlternateColorCodes(
+      '&',
+      playerPrefix + playerName + playerSuffix
     );
-    qualifiedName = ChatColor.translateAlternateColorCodes('&', qualifiedName);
-    player.setCustomNameVisible(true);
+    if (qualifiedName.equals(renderedName)) {
+      return;
+    }
+    if (renderedName == null) {
+      player.setCustomNameVisible(true);
+    }
+    renderedName = qualifiedName;
     player.setCustomName(qualifiedName);
     player.setDisplayName(qualifiedName);
     player.setPlayerListName(qualifiedName);
@@ -1,55 +1,131 @@
 package com.mysteryworlds.chiara.user;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.inject.Singleton;
 
 @Singleton
 public final class PermissionUserSessionRegistry {
-  private final Set<PermissionUserSession> sessions;
+  private final Map<UUID, PermissionUserSession> sessions;
+  /**
+   * Index from group name to the sessions depending on that group, directly
+   * or through inheritance.
+   */
+  private final Map<String, Set<PermissionUserSession>> sessionsByGroup =
+    new ConcurrentHashMap<>();
+  private final Map<PermissionUserSession, Set<String>> indexedGroups =
+    new ConcurrentHashMap<>();
 
   private PermissionUserSessionRegistry(
-    Set<PermissionUserSession> sessions
+    Map<UUID, PermissionUserSession> sessions
   ) {
     this.sessions = sessions;
   }
 
   public static PermissionUserSessionRegistry empty() {
-    return new PermissionUserSessionRegistry(Sets.newHashSet());
+    return new PermissionUserSessionRegistry(Maps.newConcurrentMap());
   }
 
   public Optional<PermissionUserSession> findSession(UUID userId) {
     Preconditions.checkNotNull(userId);
-    return sessions.stream()
-      .filter(session -> session.user().id().equals(userId))
-      .findFirst();
+    return Optional.ofNullable(sessions.get(userId));
   }
 
+  /**
+   * Find all sessions whose permissions depend on the given group, either
+   * directly or through inheritance.
+   *
+   * @param groupName Group name.
+   * @return Affected sessions.
+   */
   public List<PermissionUserSession> findSessionsByGroup(String groupName) {
     Preconditions.checkNotNull(groupName);
-    return new ArrayList<>();
+    var groupSessions = sessionsByGroup.get(groupName);
+    return groupSessions == null ? List.of() : List.copyOf(groupSessions);
   }
 
   public void register(PermissionUserSession session) {
     Preconditions.checkNotNull(session);
-    sessions.add(session);
+    var previousSession = sessions.put(session.user().id(), session);
+    if (previousSession != null) {
+      unindex(previousSession);
+    }
+    reindex(session);
+  }
+
+  /**
+   * Update the group index of a session after its groups or the inheritance
+   * of its groups changed.
+   *
+   * @param session Session.
+   */
+  public void reindex(PermissionUserSession session) {
+    Preconditions.checkNotNull(session);
+    if (sessions.get(session.user().id()) != session) {
+      return;
+    }
+    var groups = dependentGroups(session);
+    var previousGroups = indexedGroups.put(session, groups);
+    if (previousGroups != null) {
+      for (var groupName : Sets.difference(previousGroups, groups)) {
+        unindex(groupName, session);
+      }
+    }
+    for (var groupName : groups) {
+      sessionsByGroup
+        .computeIfAbsent(groupName, key -> ConcurrentHashMap.newKeySet())
+        .add(session);
+    }
+  }
+
+  private Set<String> dependentGroups(PermissionUserSession session) {
+    Set<String> groups = Sets.newHashSet();
+    for (var group : session.user().groups()) {
+      groups.add(group.name());
+      for (var ancestor : group.ancestors()) {
+        groups.add(ancestor.name());
+      }
+    }
+    return groups;
+  }
+
+  private void unindex(PermissionUserSession session) {
+    var groups = indexedGroups.remove(session);
+    if (groups != null) {
+      groups.forEach(groupName -> unindex(groupName, session));
+    }
+  }
+
+  private void unindex(String groupName, PermissionUserSession session) {
+    sessionsByGroup.computeIfPresent(groupName, (key, groupSessions) -> {
+      groupSessions.remove(session);
+      return groupSessions.isEmpty() ? null : groupSessions;
+    });
   }
 
   public void removeByUser(UUID userId) {
-    sessions.removeIf(session -> session.user().id().equals(userId));
+    Preconditions.checkNotNull(userId);
+    var session = sessions.remove(userId);
+    if (session != null) {
+      unindex(session);
+    }
   }
 
   public List<PermissionUserSession> findAll() {
-    return List.copyOf(sessions);
+    return List.copyOf(sessions.values());
   }
 
   public void clear() {
-    sessions.forEach(PermissionUserSession::close);
+    sessions.values().forEach(PermissionUserSession::close);
     sessions.clear();
+    sessionsByGroup.clear();
+    indexedGroups.clear();
   }
 }
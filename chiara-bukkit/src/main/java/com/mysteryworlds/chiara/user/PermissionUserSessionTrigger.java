@@ -1,9 +1,16 @@
 package com.mysteryworlds.chiara.user;
 
+import com.mysteryworlds.chiara.group.PermissionGroup;
 import com.mysteryworlds.chiara.group.PermissionGroupChangeEvent;
+import com.mysteryworlds.chiara.group.PermissionGroupInheritanceChangeEvent;
+import com.mysteryworlds.chiara.group.PermissionGroupMetadataChangeEvent;
+import com.mysteryworlds.chiara.user.PermissionUserUpdateEvent.Change;
 import javax.inject.Inject;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent.Result;
 import org.bukkit.event.player.PlayerChangedWorldEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
@@ -12,46 +19,114 @@ public final class PermissionUserSessionTrigger implements Listener {
   private final PermissionUserRepository userRepository;
   private final PermissionUserSessionFactory sessionFactory;
   private final PermissionUserSessionRegistry sessionRegistry;
+  private final PermissionRecalculationScheduler recalculationScheduler;
 
   @Inject
   PermissionUserSessionTrigger(
     PermissionUserRepository userRepository,
     PermissionUserSessionFactory sessionFactory,
-    PermissionUserSessionRegistry sessionRegistry
+    PermissionUserSessionRegistry sessionRegistry,
+    PermissionRecalculationScheduler recalculationScheduler
   ) {
     this.userRepository = userRepository;
     this.sessionFactory = sessionFactory;
     this.sessionRegistry = sessionRegistry;
+    this.recalculationScheduler = recalculationScheduler;
   }
 
+  /**
+   * Apply the permissions of the new world right away instead of batching
+   * the recalculation, so the permissions of the previous world are never
+   * checked in the new one. Any pending batched calculation is superseded.
+   */
   @EventHandler
   public void onWorldChange(PlayerChangedWorldEvent worldChange) {
-    System.out.println(worldChange);
     var player = worldChange.getPlayer();
-    var session = sessionRegistry.findSession(player.getUniqueId());
-    session.ifPresent(PermissionUserSession::recalculatePermissions);
+    sessionRegistry.findSession(player.getUniqueId())
+      .ifPresent(PermissionUserSession::recalculatePermissions);
   }
 
-  @EventHandler
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
   public void permissionChange(PermissionUserChangeEvent permissionChange) {
-    var userId = permissionChange.user().id();
-    var sessionOptional = sessionRegistry.findSession(userId);
-    sessionOptional.ifPresent(PermissionUserSession::recalculatePermissions);
+    recalculationScheduler.markDirty(permissionChange.user().id());
   }
 
-  @EventHandler
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void groupChange(PermissionUserGroupChangeEvent groupChange) {
+    recalculationScheduler.markDirty(groupChange.user().id());
+  }
+
+  /**
+   * Update the group index of the session once the groups of its user
+   * changed, so updates of the new groups find the session right away.
+   */
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void groupUpdate(PermissionUserUpdateEvent userUpdate) {
+    if (userUpdate.change() != Change.GROUPS) {
+      return;
+    }
+    sessionRegistry.findSession(userUpdate.user().id())
+      .ifPresent(sessionRegistry::reindex);
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
   public void groupPermissionChange(
     PermissionGroupChangeEvent permissionChange
   ) {
-    var group = permissionChange.group();
+    markGroupSessionsDirty(permissionChange.group());
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void groupInheritanceChange(
+    PermissionGroupInheritanceChangeEvent inheritanceChange
+  ) {
+    markGroupSessionsDirty(inheritanceChange.inheritingGroup());
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void metadataChange(PermissionUserMetadataChangeEvent metadataChange) {
+    recalculationScheduler.markDirty(metadataChange.user().id());
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void groupMetadataChange(
+    PermissionGroupMetadataChangeEvent metadataChange
+  ) {
+    markGroupSessionsDirty(metadataChange.group());
+  }
+
+  private void markGroupSessionsDirty(PermissionGroup group) {
     var sessions = sessionRegistry.findSessionsByGroup(group.name());
-    sessions.forEach(PermissionUserSession::recalculatePermissions);
+    sessions.forEach(session ->
+      recalculationScheduler.markDirty(session.user().id())
+    );
+  }
+
+  /**
+   * Load the user while the player logs in, so the file is read off the main
+   * thread. Players are refused if their user can't be read, as they would
+   * otherwise start with default permissions that overwrite their file. The
+   * user is only kept like any offline user here and pinned once the player
+   * joined, as a later handler may still refuse the login without a quit.
+   */
+  @EventHandler(priority = EventPriority.HIGHEST)
+  public void loadUser(AsyncPlayerPreLoginEvent preLogin) {
+    if (preLogin.getLoginResult() != Result.ALLOWED) {
+      return;
+    }
+    try {
+      userRepository.findOrCreateUser(preLogin.getUniqueId());
+    } catch (RuntimeException e) {
+      e.printStackTrace();
+      preLogin.disallow(Result.KICK_OTHER, "Couldn't load your permissions");
+    }
   }
 
   @EventHandler
   public void beginSession(PlayerJoinEvent playerJoin) {
     var uniqueId = playerJoin.getPlayer().getUniqueId();
-    var user = userRepository.findOrCreateUser(uniqueId);
+    userRepository.updateUserName(uniqueId, playerJoin.getPlayer().getName());
+    var user = userRepository.loadOnlineUser(uniqueId);
     var session = sessionFactory.createSession(playerJoin.getPlayer(), user);
     sessionRegistry.register(session);
   }
@@ -64,5 +139,6 @@ public final class PermissionUserSessionTrigger implements Listener {
       session.close();
       sessionRegistry.removeByUser(uniqueId);
     });
+    userRepository.unloadUser(uniqueId);
   }
 }
@@ -0,0 +1,53 @@
+package com.mysteryworlds.chiara.user;
+
+import com.google.common.base.Preconditions;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+
+/**
+ * Called after a change of a user took effect. Unlike the cancellable change
+ * events, which are called before the change, listeners see the changed
+ * user.
+ */
+public final class PermissionUserUpdateEvent extends Event {
+  private static final HandlerList HANDLER_LIST = new HandlerList();
+  private final PermissionUser user;
+  private final Change change;
+
+  private PermissionUserUpdateEvent(PermissionUser user, Change change) {
+    this.user = user;
+    this.change = change;
+  }
+
+  public static PermissionUserUpdateEvent of(
+    PermissionUser user,
+    Change change
+  ) {
+    Preconditions.checkNotNull(user);
+    Preconditions.checkNotNull(change);
+    return new PermissionUserUpdateEvent(user, change);
+  }
+
+  public static HandlerList getHandlerList() {
+    return HANDLER_LIST;
+  }
+
+  public PermissionUser user() {
+    return user;
+  }
+
+  public Change change() {
+    return change;
+  }
+
+  @Override
+  public HandlerList getHandlers() {
+    return getHandlerList();
+  }
+
+  public enum Change {
+    PERMISSIONS,
+    GROUPS,
+    METADATA
+  }
+}
@@ -0,0 +1,10 @@
+package com.mysteryworlds.chiara.user;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import javax.inject.Qualifier;
+
+@Retention(RetentionPolicy.RUNTIME)
+@Qualifier
+public @interface UsersFolder {
+}
@@ -43,11 +43,9 @@ public class VaultChat extends Chat {
 
   @Override
   public String getPlayerPrefix(String world, String player) {
-    System.out.println(userRepository.findOrCreateUser(player).metadata());
     return userRepository.findOrCreateUser(player)
-      .metadata(PREFIX_KEY)
-      .orElse(DEFAULT_PREFIX_SUFFIX)
-      .toString();
+      .effectiveMetadataValue(PREFIX_KEY)
+      .stringValue(DEFAULT_PREFIX_SUFFIX);
   }
 
   @Override
@@ -59,9 +57,8 @@ public class VaultChat extends Chat {
   @Override
   public String getPlayerSuffix(String world, String player) {
     return userRepository.findOrCreateUser(player)
-      .metadata(SUFFIX_KEY)
-      .orElse(DEFAULT_PREFIX_SUFFIX)
-      .toString();
+      .effectiveMetadataValue(SUFFIX_KEY)
+      .stringValue(DEFAULT_PREFIX_SUFFIX);
   }
 
   @Override
@@ -74,9 +71,8 @@ public class VaultChat extends Chat {
   public String getGroupPrefix(String world, String group) {
     return groupRepository.findGroup(group)
       .orElseThrow()
-      .metadata(PREFIX_KEY)
-      .orElse(DEFAULT_PREFIX_SUFFIX)
-      .toString();
+      .effectiveMetadataValue(PREFIX_KEY)
+      .stringValue(DEFAULT_PREFIX_SUFFIX);
   }
 
   @Override
@@ -90,9 +86,8 @@ public class VaultChat extends Chat {
   public String getGroupSuffix(String world, String group) {
     return groupRepository.findGroup(group)
       .orElseThrow()
-      .metadata(SUFFIX_KEY)
-      .orElse(DEFAULT_PREFIX_SUFFIX)
-      .toString();
+      .effectiveMetadataValue(SUFFIX_KEY)
+      .stringValue(DEFAULT_PREFIX_SUFFIX);
   }
 
   @Override
@@ -109,9 +104,9 @@ public class VaultChat extends Chat {
     String node,
     int defaultValue
   ) {
-    return (int) userRepository.findOrCreateUser(player)
-      .metadata(node)
-      .orElse(defaultValue);
+    return userRepository.findOrCreateUser(player)
+      .effectiveMetadataValue(node)
+      .intValue(defaultValue);
   }
 
   @Override
@@ -132,10 +127,10 @@ public class VaultChat extends Chat {
     String node,
     int defaultValue
   ) {
-    return (int) groupRepository.findGroup(group)
+    return groupRepository.findGroup(group)
       .orElseThrow()
-      .metadata(node)
-      .orElse(defaultValue);
+      .effectiveMetadataValue(node)
+      .intValue(defaultValue);
   }
 
   @Override
@@ -157,9 +152,9 @@ public class VaultChat extends Chat {
     String node,
     double defaultValue
   ) {
-    return (double) userRepository.findOrCreateUser(player)
-      .metadata(node)
-      .orElse(defaultValue);
+    return userRepository.findOrCreateUser(player)
+      .effectiveMetadataValue(node)
+      .doubleValue(defaultValue);
   }
 
   @Override
@@ -180,10 +175,10 @@ public class VaultChat extends Chat {
     String node,
     double defaultValue
   ) {
-    return (double) groupRepository.findGroup(group)
+    return groupRepository.findGroup(group)
       .orElseThrow()
-      .metadata(node)
-      .orElse(defaultValue);
+      .effectiveMetadataValue(node)
+      .doubleValue(defaultValue);
   }
 
   @Override
@@ -201,9 +196,9 @@ public class VaultChat extends Chat {
   @Override
   public boolean getPlayerInfoBoolean(String world, String player, String node,
     boolean defaultValue) {
-    return (boolean) userRepository.findOrCreateUser(player)
-      .metadata(node)
-      .orElse(defaultValue);
+    return userRepository.findOrCreateUser(player)
+      .effectiveMetadataValue(node)
+      .booleanValue(defaultValue);
   }
 
   @Override
@@ -224,10 +219,10 @@ public class VaultChat extends Chat {
     String node,
     boolean defaultValue
   ) {
-    return (boolean) groupRepository.findGroup(group)
+    return groupRepository.findGroup(group)
       .orElseThrow()
-      .metadata(node)
-      .orElse(defaultValue);
+      .effectiveMetadataValue(node)
+      .booleanValue(defaultValue);
   }
 
   @Override
@@ -249,9 +244,9 @@ public class VaultChat extends Chat {
     String node,
     String defaultValue
   ) {
-    return (String) userRepository.findOrCreateUser(player)
-      .metadata(node)
-      .orElse(defaultValue);
+    return userRepository.findOrCreateUser(player)
+      .effectiveMetadataValue(node)
+      .stringValue(defaultValue);
   }
 
   @Override
@@ -272,10 +267,10 @@ public class VaultChat extends Chat {
     String node,
     String defaultValue
   ) {
-    return (String) groupRepository.findGroup(group)
+    return groupRepository.findGroup(group)
       .orElseThrow()
-      .metadata(node)
-      .orElse(defaultValue);
+      .effectiveMetadataValue(node)
+      .stringValue(defaultValue);
   }
 
   @Override
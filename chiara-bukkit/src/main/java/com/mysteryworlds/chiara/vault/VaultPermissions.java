@@ -11,7 +11,6 @@ import java.util.UUID;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import net.milkbowl.vault.permission.Permission;
-import org.bukkit.Bukkit;
 import org.bukkit.plugin.Plugin;
 
 @Singleton
@@ -241,6 +240,6 @@ public final class VaultPermissions extends Permission {
   }
 
   private UUID findPlayerUniqueId(String player) {
-    return Bukkit.getOfflinePlayer(player).getUniqueId();
+    return userRepository.findUserId(player);
   }
 }
@@ -0,0 +1,67 @@
+package com.mysteryworlds.chiara;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class ConfigJournalTest {
+  @TempDir
+  Path tempDir;
+
+  private Path journalPath;
+  private ConfigJournal<Map> journal;
+
+  @BeforeEach
+  void setUp() {
+    var configPath = tempDir.resolve("test.yml");
+    journalPath = tempDir.resolve("test.yml.journal");
+    journal = ConfigJournal.forConfig(
+      configPath,
+      new ObjectMapper(new YAMLFactory()),
+      Map.class
+    );
+  }
+
+  @Test
+  void testReadInOrder() throws IOException {
+    journal.append(Map.of("key", "first"));
+    journal.append(Map.of("key", "second"));
+
+    assertEquals(
+      List.of(Map.of("key", "first"), Map.of("key", "second")),
+      journal.read()
+    );
+  }
+
+  @Test
+  void testReadIgnoresIncompleteDocument() throws IOException {
+    journal.append(Map.of("key", "first"));
+    Files.writeString(journalPath, "---\nkey: sec", StandardOpenOption.APPEND);
+
+    assertEquals(List.of(Map.of("key", "first")), journal.read());
+    journal.append(Map.of("key", "third"));
+    assertEquals(
+      List.of(Map.of("key", "first"), Map.of("key", "third")),
+      journal.read()
+    );
+  }
+
+  @Test
+  void testDelete() throws IOException {
+    journal.append(Map.of("key", "first"));
+    journal.delete();
+
+    assertTrue(journal.read().isEmpty());
+  }
+}
@@ -0,0 +1,126 @@
+package com.mysteryworlds.chiara;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.mysteryworlds.chiara.ConfigSnapshot.Codec;
+import com.mysteryworlds.chiara.ConfigSnapshot.SnapshotReader;
+import com.mysteryworlds.chiara.ConfigSnapshot.SnapshotWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class ConfigSnapshotTest {
+  private static final byte[] SOURCE = "source: 1"
+    .getBytes(StandardCharsets.UTF_8);
+
+  @TempDir
+  Path tempDir;
+
+  private Path snapshotPath;
+  private ConfigSnapshot<Map<String, Object>> snapshot;
+
+  @BeforeEach
+  void setUp() {
+    var configPath = tempDir.resolve("test.yml");
+    snapshotPath = tempDir.resolve("test.yml.snapshot");
+    snapshot = ConfigSnapshot.forConfig(configPath, 1, new MapCodec());
+  }
+
+  @Test
+  void testReadWritten() throws IOException {
+    Map<String, Object> value = new LinkedHashMap<>();
+    value.put("string", "value");
+    value.put("int", 300);
+    value.put("long", Long.MAX_VALUE);
+    value.put("double", 1.5D);
+    value.put("boolean", true);
+    snapshot.write(SOURCE, value);
+
+    assertTrue(Files.exists(snapshotPath));
+    assertEquals(value, snapshot.read(SOURCE).orElseThrow());
+  }
+
+  @Test
+  void testReadWrittenListAndMap() throws IOException {
+    Map<Object, Object> nested = new LinkedHashMap<>();
+    nested.put("colors", List.of("red", "green"));
+    nested.put(1, 2L);
+    Map<String, Object> value = new LinkedHashMap<>();
+    value.put("list", List.of("value", 300, List.of(true)));
+    value.put("map", nested);
+    value.put("empty", List.of());
+    snapshot.write(SOURCE, value);
+
+    assertEquals(value, snapshot.read(SOURCE).orElseThrow());
+  }
+
+  @Test
+  void testReadChangedSource() throws IOException {
+    snapshot.write(SOURCE, Map.of("key", "value"));
+
+    var changedSource = "source: 2".getBytes(StandardCharsets.UTF_8);
+    assertTrue(snapshot.read(changedSource).isEmpty());
+  }
+
+  @Test
+  void testReadOtherVersion() throws IOException {
+    snapshot.write(SOURCE, Map.of("key", "value"));
+
+    var nextSnapshot = ConfigSnapshot.forConfig(
+      tempDir.resolve("test.yml"),
+      2,
+      new MapCodec()
+    );
+    assertTrue(nextSnapshot.read(SOURCE).isEmpty());
+  }
+
+  @Test
+  void testReadMissingOrCorrupt() throws IOException {
+    assertTrue(snapshot.read(SOURCE).isEmpty());
+
+    snapshot.write(SOURCE, Map.of("key", "value"));
+    var content = Files.readAllBytes(snapshotPath);
+    Files.write(snapshotPath, Arrays.copyOf(content, 20));
+    assertTrue(snapshot.read(SOURCE).isEmpty());
+  }
+
+  @Test
+  void testWriteUnsupportedValue() {
+    assertThrows(
+      IOException.class,
+      () -> snapshot.write(SOURCE, Map.of("key", new Object()))
+    );
+  }
+
+  private static final class MapCodec implements Codec<Map<String, Object>> {
+    @Override
+    public void write(Map<String, Object> value, SnapshotWriter writer)
+      throws IOException {
+      writer.writeVarInt(value.size());
+      for (var entry : value.entrySet()) {
+        writer.writeInterned(entry.getKey());
+        writer.writeValue(entry.getValue());
+      }
+    }
+
+    @Override
+    public Map<String, Object> read(SnapshotReader reader) throws IOException {
+      var size = reader.readVarInt();
+      Map<String, Object> value = new LinkedHashMap<>();
+      for (var i = 0; i < size; i++) {
+        value.put(reader.readInterned(), reader.readValue());
+      }
+      return value;
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package com.mysteryworlds.chiara.group;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import com.mysteryworlds.chiara.permission.Permission;
 import com.mysteryworlds.chiara.permission.PermissionEntity.Metadata;
@@ -47,4 +48,40 @@ final class GroupTableTest {
     var permissionStatus = worldPermissions.statusOf(permission);
     assertEquals(PermissionStatus.DECLINED, permissionStatus);
   }
+
+  @Test
+  void testLinearizeDiamond() {
+    var defaultGroup = createGroup("default", GroupTable.empty());
+    var moderator = createGroup("moderator", GroupTable.withGroups(defaultGroup));
+    var builder = createGroup("builder", GroupTable.withGroups(defaultGroup));
+    groups.add(moderator);
+    groups.add(builder);
+
+    assertEquals(
+      List.of(defaultGroup, moderator, builder),
+      groups.linearize()
+    );
+  }
+
+  @Test
+  void testLinearizeCycle() {
+    var inheritedGroups = GroupTable.empty();
+    var firstGroup = createGroup("first", inheritedGroups);
+    var secondGroup = createGroup("second", GroupTable.withGroups(firstGroup));
+    inheritedGroups.add(secondGroup);
+    groups.add(firstGroup);
+
+    assertThrows(IllegalStateException.class, groups::linearize);
+  }
+
+  private PermissionGroup createGroup(String name, GroupTable inheritedGroups) {
+    return new PermissionGroup(
+      name,
+      PermissionTable.empty(),
+      inheritedGroups,
+      WorldPermissionTable.empty(),
+      Metadata.empty(),
+      pluginManager
+    );
+  }
 }
@@ -1,12 +1,24 @@
 package com.mysteryworlds.chiara.group;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
 import org.bukkit.plugin.PluginManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -16,13 +28,13 @@ class PermissionGroupRepositoryTest {
 
   @Mock
   private PluginManager pluginManager;
+  @TempDir
+  Path tempDir;
 
   @BeforeEach
   void setUp() {
-    groupRepository = new PermissionGroupRepository(
-      new PermissionGroupFactory(pluginManager),
-      Paths.get("src", "test", "resources", "groups.yml"),
-      new ObjectMapper(new YAMLFactory())
+    groupRepository = createRepository(
+      Paths.get("src", "test", "resources", "groups.yml")
     );
   }
 
@@ -31,4 +43,174 @@ class PermissionGroupRepositoryTest {
     groupRepository.load();
     var groups = groupRepository.findAll();
   }
+
+  @Test
+  void testLoadSharesInheritedGroups() {
+    groupRepository.load();
+    var admin = groupRepository.findGroup("admin").orElseThrow();
+    var moderator = groupRepository.findGroup("moderator").orElseThrow();
+
+    assertSame(moderator, admin.groups().iterator().next());
+    assertTrue(admin.hasPermission("server.kick"));
+  }
+
+  @Test
+  void testLoadCyclicInheritance() throws IOException {
+    var configPath = tempDir.resolve("groups.yml");
+    Files.writeString(configPath, String.join("\n",
+      "groups:",
+      "  first:",
+      "    inheritance:",
+      "      - second",
+      "  second:",
+      "    inheritance:",
+      "      - first"
+    ));
+    groupRepository = createRepository(configPath);
+
+    assertThrows(IllegalStateException.class, groupRepository::load);
+  }
+
+  @Test
+  void testLoadEmptyMetadataValue() throws IOException {
+    var configPath = tempDir.resolve("groups.yml");
+    Files.writeString(configPath, String.join("\n",
+      "groups:",
+      "  default:",
+      "    metadata:",
+      "      prefix:",
+      "      suffix: '&7'"
+    ));
+    groupRepository = createRepository(configPath);
+    groupRepository.load();
+    var group = groupRepository.findGroup("default").orElseThrow();
+
+    assertTrue(group.metadata("prefix").isEmpty());
+    assertEquals("&7", group.metadata("suffix").orElseThrow());
+  }
+
+  @Test
+  void testSaveOnlyWhenDirty() throws IOException {
+    var configPath = tempDir.resolve("groups.yml");
+    Files.copy(Paths.get("src", "test", "resources", "groups.yml"), configPath);
+    groupRepository = createRepository(configPath);
+    groupRepository.load();
+    var content = Files.readString(configPath);
+
+    groupRepository.save().join();
+    assertEquals(content, Files.readString(configPath));
+
+    groupRepository.findGroup("admin").orElseThrow()
+      .metadata("prefix", "[Admin]");
+    groupRepository.markDirty("admin");
+    groupRepository.save().join();
+    assertTrue(Files.readString(configPath).contains("[Admin]"));
+    try (var files = Files.list(tempDir)) {
+      assertEquals(List.of(configPath), files.collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  void testAutosaveJournal() throws IOException {
+    var configPath = tempDir.resolve("groups.yml");
+    Files.copy(Paths.get("src", "test", "resources", "groups.yml"), configPath);
+    var journalPath = tempDir.resolve("groups.yml.journal");
+    groupRepository = createRepository(configPath);
+    groupRepository.load();
+    var content = Files.readString(configPath);
+
+    groupRepository.findGroup("admin").orElseThrow()
+      .metadata("prefix", "[Admin]");
+    groupRepository.markDirty("admin");
+    groupRepository.autosave().join();
+    assertEquals(content, Files.readString(configPath));
+    assertTrue(Files.readString(journalPath).contains("[Admin]"));
+    assertFalse(Files.readString(journalPath).contains("moderator:"));
+
+    var reloadedRepository = createRepository(configPath);
+    reloadedRepository.load();
+    var admin = reloadedRepository.findGroup("admin").orElseThrow();
+    assertEquals("[Admin]", admin.metadata("prefix").orElseThrow());
+    assertSame(
+      reloadedRepository.findGroup("moderator").orElseThrow(),
+      admin.groups().iterator().next()
+    );
+
+    reloadedRepository.save().join();
+    assertTrue(Files.readString(configPath).contains("[Admin]"));
+    assertTrue(Files.notExists(journalPath));
+  }
+
+  @Test
+  void testSaveKeepsInheritanceOrder() throws IOException {
+    var configPath = tempDir.resolve("groups.yml");
+    var parents = List.of("e", "c", "a", "d", "b");
+    var config = new StringBuilder("groups:\n");
+    for (var parent : parents) {
+      config.append("  ").append(parent).append(": {}\n");
+    }
+    config.append("  child:\n    inheritance:\n");
+    for (var parent : parents) {
+      config.append("      - ").append(parent).append("\n");
+    }
+    Files.writeString(configPath, config);
+    groupRepository = createRepository(configPath);
+    groupRepository.load();
+    groupRepository.markDirty("child");
+    groupRepository.save().join();
+
+    var reloadedRepository = createRepository(configPath);
+    reloadedRepository.load();
+    var child = reloadedRepository.findGroup("child").orElseThrow();
+    assertEquals(parents, child.inheritedGroups().asList().stream()
+      .map(PermissionGroup::name)
+      .collect(Collectors.toList()));
+  }
+
+  @Test
+  void testLoadSnapshot() throws IOException {
+    var configPath = tempDir.resolve("groups.yml");
+    Files.copy(Paths.get("src", "test", "resources", "groups.yml"), configPath);
+    var snapshotPath = tempDir.resolve("groups.yml.snapshot");
+    createRepository(configPath, true).load();
+    assertTrue(Files.exists(snapshotPath));
+
+    var snapshotRepository = createRepository(configPath, true);
+    snapshotRepository.load();
+    var admin = snapshotRepository.findGroup("admin").orElseThrow();
+    assertSame(
+      snapshotRepository.findGroup("moderator").orElseThrow(),
+      admin.groups().iterator().next()
+    );
+    assertTrue(admin.hasPermission("server.kick"));
+
+    Files.writeString(configPath, String.join("\n",
+      "groups:",
+      "  default:",
+      "    permissions:",
+      "      chat.use: true"
+    ));
+    var editedRepository = createRepository(configPath, true);
+    editedRepository.load();
+    assertEquals(1, editedRepository.findAll().size());
+    assertTrue(editedRepository.findGroup("default").orElseThrow()
+      .hasPermission("chat.use"));
+  }
+
+  private PermissionGroupRepository createRepository(Path configPath) {
+    return createRepository(configPath, false);
+  }
+
+  private PermissionGroupRepository createRepository(
+    Path configPath,
+    boolean configSnapshots
+  ) {
+    return new PermissionGroupRepository(
+      new PermissionGroupFactory(pluginManager),
+      configPath,
+      new ObjectMapper(new YAMLFactory()),
+      Runnable::run,
+      configSnapshots
+    );
+  }
 }
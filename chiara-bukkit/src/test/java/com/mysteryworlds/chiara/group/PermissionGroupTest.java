@@ -2,6 +2,7 @@ package com.mysteryworlds.chiara.group;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.mysteryworlds.chiara.permission.Permission;
@@ -116,6 +117,113 @@ final class PermissionGroupTest {
     assertTrue(hasPermission);
   }
 
+  @Test
+  void testInheritedPermissionsInvalidated() {
+    var inheritingGroup = groupFactory.createGroup(
+      "TestGroup2",
+      PermissionTable.empty(),
+      GroupTable.withGroups(List.of(permissionGroup)),
+      WorldPermissionTable.empty(),
+      Metadata.empty()
+    );
+    assertFalse(inheritingGroup.hasPermission(TEST_PERMISSION.name()));
+
+    permissionGroup
+      .setPermissionStatus(TEST_PERMISSION, PermissionStatus.ALLOWED);
+    inheritingGroup.invalidateEffectivePermissions();
+    assertTrue(inheritingGroup.hasPermission(TEST_PERMISSION.name()));
+  }
+
+  @Test
+  void testDiamondInheritance() {
+    permissionGroup
+      .setPermissionStatus(TEST_PERMISSION, PermissionStatus.DECLINED);
+    var moderator = groupFactory.createGroup(
+      "Moderator",
+      PermissionTable
+        .withPermissions(Map.of(TEST_PERMISSION, PermissionStatus.ALLOWED)),
+      GroupTable.withGroups(List.of(permissionGroup)),
+      WorldPermissionTable.empty(),
+      Metadata.empty()
+    );
+    var builder = groupFactory.createGroup(
+      "Builder",
+      PermissionTable.empty(),
+      GroupTable.withGroups(List.of(permissionGroup)),
+      WorldPermissionTable.empty(),
+      Metadata.empty()
+    );
+    var admin = groupFactory.createGroup(
+      "Admin",
+      PermissionTable.empty(),
+      GroupTable.withGroups(List.of(moderator, builder)),
+      WorldPermissionTable.empty(),
+      Metadata.empty()
+    );
+
+    assertEquals(List.of(permissionGroup, moderator, builder),
+      admin.ancestors());
+    assertTrue(admin.hasPermission(TEST_PERMISSION.name()));
+  }
+
+  @Test
+  void testAddGroupRejectsCycle() {
+    var inheritingGroup = groupFactory.createGroup(
+      "TestGroup2",
+      PermissionTable.empty(),
+      GroupTable.withGroups(List.of(permissionGroup)),
+      WorldPermissionTable.empty(),
+      Metadata.empty()
+    );
+
+    assertThrows(IllegalArgumentException.class,
+      () -> permissionGroup.addGroup(inheritingGroup));
+    assertThrows(IllegalArgumentException.class,
+      () -> permissionGroup.addGroup(permissionGroup));
+  }
+
+  @Test
+  void testEffectiveMetadata() {
+    permissionGroup.metadata("prefix", "[Default]");
+    var inheritingGroup = groupFactory.createGroup(
+      "TestGroup2",
+      PermissionTable.empty(),
+      GroupTable.withGroups(List.of(permissionGroup)),
+      WorldPermissionTable.empty(),
+      Metadata.empty()
+    );
+    assertEquals("[Default]",
+      inheritingGroup.effectiveMetadata("prefix").orElseThrow());
+
+    inheritingGroup.metadata("prefix", "[Admin]");
+    assertEquals("[Admin]",
+      inheritingGroup.effectiveMetadata("prefix").orElseThrow());
+    assertTrue(inheritingGroup.effectiveMetadata("suffix").isEmpty());
+  }
+
+  @Test
+  void testInheritsFrom() {
+    var parentGroup = groupFactory.createGroup(
+      "TestGroup2",
+      PermissionTable.empty(),
+      GroupTable.withGroups(List.of(permissionGroup)),
+      WorldPermissionTable.empty(),
+      Metadata.empty()
+    );
+    var childGroup = groupFactory.createGroup(
+      "TestGroup3",
+      PermissionTable.empty(),
+      GroupTable.withGroups(List.of(parentGroup)),
+      WorldPermissionTable.empty(),
+      Metadata.empty()
+    );
+
+    assertTrue(childGroup.inheritsFrom(parentGroup));
+    assertTrue(childGroup.inheritsFrom(permissionGroup));
+    assertFalse(permissionGroup.inheritsFrom(childGroup));
+    assertFalse(childGroup.inheritsFrom(childGroup));
+  }
+
   @Test
   void testSetPermissionStatus() {
   }
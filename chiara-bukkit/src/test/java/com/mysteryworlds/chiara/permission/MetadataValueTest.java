@@ -0,0 +1,59 @@
+package com.mysteryworlds.chiara.permission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+final class MetadataValueTest {
+  @Test
+  void testAbsent() {
+    var value = MetadataValue.absent();
+
+    assertFalse(value.isPresent());
+    assertNull(value.value());
+    assertEquals("default", value.stringValue("default"));
+    assertEquals(7, value.intValue(7));
+    assertEquals(1.5, value.doubleValue(1.5));
+    assertTrue(value.booleanValue(true));
+  }
+
+  @Test
+  void testInteger() {
+    var value = MetadataValue.of(42);
+
+    assertEquals(42, value.intValue(0));
+    assertEquals(42.0, value.doubleValue(0));
+    assertEquals("42", value.stringValue(null));
+    assertFalse(value.booleanValue(false));
+  }
+
+  @Test
+  void testDouble() {
+    var value = MetadataValue.of(2.5);
+
+    assertEquals(2.5, value.doubleValue(0));
+    assertEquals(-1, value.intValue(-1));
+    assertEquals(3, MetadataValue.of(3.0).intValue(-1));
+  }
+
+  @Test
+  void testBoolean() {
+    var value = MetadataValue.of(true);
+
+    assertTrue(value.booleanValue(false));
+    assertEquals(-1, value.intValue(-1));
+    assertEquals("true", value.stringValue(null));
+  }
+
+  @Test
+  void testParseString() {
+    assertEquals(12, MetadataValue.of("12").intValue(0));
+    assertEquals(0.25, MetadataValue.of("0.25").doubleValue(0));
+    assertTrue(MetadataValue.of("TRUE").booleanValue(false));
+    assertEquals(-1, MetadataValue.of("[Admin]").intValue(-1));
+    assertEquals("[Admin]", MetadataValue.of("[Admin]").stringValue(null));
+  }
+}
@@ -0,0 +1,157 @@
+package com.mysteryworlds.chiara.permission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import org.bukkit.permissions.Permissible;
+import org.bukkit.permissions.PermissionAttachment;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.Test;
+
+final class PermissionSnapshotTest {
+  private static final Permission ALLOWED_PERMISSION = Permission
+    .of("test.snapshot.allowed");
+  private static final Permission DECLINED_PERMISSION = Permission
+    .of("test.snapshot.declined");
+
+  @Test
+  void testEmpty() {
+    var snapshot = PermissionSnapshot.empty();
+    assertTrue(snapshot.isEmpty());
+    assertEquals(PermissionStatus.NOT_SET,
+      snapshot.statusOf(ALLOWED_PERMISSION));
+  }
+
+  @Test
+  void testOf() {
+    var snapshot = PermissionSnapshot.of(PermissionTable.withPermissions(Map.of(
+      ALLOWED_PERMISSION, PermissionStatus.ALLOWED,
+      DECLINED_PERMISSION, PermissionStatus.DECLINED
+    )));
+
+    assertFalse(snapshot.isEmpty());
+    assertEquals(PermissionStatus.ALLOWED,
+      snapshot.statusOf(ALLOWED_PERMISSION));
+    assertEquals(PermissionStatus.DECLINED,
+      snapshot.statusOf(DECLINED_PERMISSION));
+  }
+
+  @Test
+  void testMergeOverrides() {
+    var defensive = PermissionSnapshot.of(PermissionTable.withPermissions(
+      Map.of(
+        ALLOWED_PERMISSION, PermissionStatus.DECLINED,
+        DECLINED_PERMISSION, PermissionStatus.ALLOWED
+      )));
+    var offensive = PermissionSnapshot.of(PermissionTable.withPermissions(
+      Map.of(
+        ALLOWED_PERMISSION, PermissionStatus.ALLOWED,
+        DECLINED_PERMISSION, PermissionStatus.DECLINED
+      )));
+
+    var merged = defensive.merge(offensive);
+    assertEquals(PermissionStatus.ALLOWED,
+      merged.statusOf(ALLOWED_PERMISSION));
+    assertEquals(PermissionStatus.DECLINED,
+      merged.statusOf(DECLINED_PERMISSION));
+    assertEquals(PermissionStatus.DECLINED,
+      defensive.statusOf(ALLOWED_PERMISSION));
+  }
+
+  @Test
+  void testMergeAllKeepsOrder() {
+    var first = PermissionSnapshot.of(PermissionTable.withPermissions(Map.of(
+      ALLOWED_PERMISSION, PermissionStatus.DECLINED
+    )));
+    var second = PermissionSnapshot.of(PermissionTable.withPermissions(Map.of(
+      ALLOWED_PERMISSION, PermissionStatus.ALLOWED
+    )));
+    var third = PermissionSnapshot.of(PermissionTable.withPermissions(Map.of(
+      DECLINED_PERMISSION, PermissionStatus.DECLINED
+    )));
+
+    var merged = PermissionSnapshot.mergeAll(List.of(first, second, third));
+    assertEquals(PermissionStatus.ALLOWED,
+      merged.statusOf(ALLOWED_PERMISSION));
+    assertEquals(PermissionStatus.DECLINED,
+      merged.statusOf(DECLINED_PERMISSION));
+  }
+
+  @Test
+  void testMergeTable() {
+    var snapshot = PermissionSnapshot.of(PermissionTable.withPermissions(
+      List.of(ALLOWED_PERMISSION)
+    ));
+
+    var merged = snapshot.merge(PermissionTable.withPermissions(Map.of(
+      ALLOWED_PERMISSION, PermissionStatus.DECLINED
+    )));
+    assertEquals(PermissionStatus.DECLINED,
+      merged.statusOf(ALLOWED_PERMISSION));
+  }
+
+  @Test
+  void testStatusOfWildcard() {
+    var snapshot = PermissionSnapshot.of(PermissionTable.withBoolPermissions(
+      Map.of(
+        "epic.*", true,
+        "epic.fly.*", false,
+        "epic.fly.low", true
+      )));
+
+    assertEquals(PermissionStatus.ALLOWED,
+      snapshot.statusOf(Permission.of("epic.walk")));
+    assertEquals(PermissionStatus.DECLINED,
+      snapshot.statusOf(Permission.of("epic.fly.high")));
+    assertEquals(PermissionStatus.ALLOWED,
+      snapshot.statusOf(Permission.of("epic.fly.low")));
+    assertEquals(PermissionStatus.NOT_SET,
+      snapshot.statusOf(Permission.of("epic")));
+  }
+
+  @Test
+  void testApply() {
+    var snapshot = PermissionSnapshot.of(PermissionTable.withPermissions(Map.of(
+      ALLOWED_PERMISSION, PermissionStatus.ALLOWED,
+      DECLINED_PERMISSION, PermissionStatus.DECLINED
+    )));
+    var plugin = mock(Plugin.class);
+    when(plugin.isEnabled()).thenReturn(true);
+    var permissible = mock(Permissible.class);
+    var attachment = new PermissionAttachment(plugin, permissible);
+
+    assertTrue(snapshot.apply(attachment, PermissionSnapshot.empty()));
+    assertEquals(Map.of(
+      ALLOWED_PERMISSION.name(), true,
+      DECLINED_PERMISSION.name(), false
+    ), attachment.getPermissions());
+  }
+
+  @Test
+  void testApplyDelta() {
+    var previous = PermissionSnapshot.of(PermissionTable.withPermissions(Map.of(
+      ALLOWED_PERMISSION, PermissionStatus.ALLOWED,
+      DECLINED_PERMISSION, PermissionStatus.DECLINED
+    )));
+    var snapshot = PermissionSnapshot.of(PermissionTable.withPermissions(Map.of(
+      ALLOWED_PERMISSION, PermissionStatus.DECLINED
+    )));
+    var plugin = mock(Plugin.class);
+    var permissible = mock(Permissible.class);
+    var attachment = new PermissionAttachment(plugin, permissible);
+
+    assertTrue(previous.apply(attachment, PermissionSnapshot.empty()));
+    assertTrue(snapshot.apply(attachment, previous));
+    assertEquals(Map.of(ALLOWED_PERMISSION.name(), false),
+      attachment.getPermissions());
+    assertFalse(snapshot.apply(attachment, snapshot));
+    assertFalse(PermissionSnapshot.of(PermissionTable.withPermissions(Map.of(
+      ALLOWED_PERMISSION, PermissionStatus.DECLINED
+    ))).apply(attachment, snapshot));
+  }
+}
@@ -0,0 +1,89 @@
+package com.mysteryworlds.chiara.permission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import org.junit.jupiter.api.Test;
+
+final class PermissionStatusTrieTest {
+  @Test
+  void testPutGet() {
+    var trie = PermissionStatusTrie.EMPTY
+      .put(1, PermissionStatus.ALLOWED)
+      .put(33, PermissionStatus.DECLINED);
+
+    assertEquals(PermissionStatus.ALLOWED, trie.get(1));
+    assertEquals(PermissionStatus.DECLINED, trie.get(33));
+    assertNull(trie.get(65));
+    assertEquals(2, trie.size());
+  }
+
+  @Test
+  void testPutIsPersistent() {
+    var trie = PermissionStatusTrie.EMPTY.put(1, PermissionStatus.ALLOWED);
+    var updatedTrie = trie.put(1, PermissionStatus.DECLINED);
+
+    assertEquals(PermissionStatus.ALLOWED, trie.get(1));
+    assertEquals(PermissionStatus.DECLINED, updatedTrie.get(1));
+    assertSame(updatedTrie, updatedTrie.put(1, PermissionStatus.DECLINED));
+  }
+
+  @Test
+  void testRemove() {
+    var trie = PermissionStatusTrie.EMPTY
+      .put(1, PermissionStatus.ALLOWED)
+      .put(33, PermissionStatus.DECLINED)
+      .put(1025, PermissionStatus.ALLOWED);
+    var removedTrie = trie.remove(33);
+
+    assertNull(removedTrie.get(33));
+    assertEquals(PermissionStatus.ALLOWED, removedTrie.get(1));
+    assertEquals(PermissionStatus.ALLOWED, removedTrie.get(1025));
+    assertEquals(PermissionStatus.DECLINED, trie.get(33));
+    assertEquals(2, removedTrie.size());
+    assertTrue(removedTrie.remove(1).remove(1025).isEmpty());
+  }
+
+  @Test
+  void testPutAll() {
+    var target = PermissionStatusTrie.EMPTY
+      .put(1, PermissionStatus.ALLOWED)
+      .put(2, PermissionStatus.ALLOWED);
+    var source = PermissionStatusTrie.EMPTY
+      .put(2, PermissionStatus.DECLINED)
+      .put(3, PermissionStatus.DECLINED);
+
+    var merged = target.putAll(source);
+    assertEquals(PermissionStatus.ALLOWED, merged.get(1));
+    assertEquals(PermissionStatus.DECLINED, merged.get(2));
+    assertEquals(PermissionStatus.DECLINED, merged.get(3));
+    assertEquals(3, merged.size());
+    assertSame(source, PermissionStatusTrie.EMPTY.putAll(source));
+  }
+
+  @Test
+  void testManyEntries() {
+    var expected = new HashMap<Integer, PermissionStatus>();
+    var trie = PermissionStatusTrie.EMPTY;
+    for (var id = 0; id < 5000; id += 7) {
+      var status = id % 2 == 0
+        ? PermissionStatus.ALLOWED
+        : PermissionStatus.DECLINED;
+      trie = trie.put(id, status);
+      expected.put(id, status);
+    }
+    for (var id = 0; id < 5000; id += 21) {
+      trie = trie.remove(id);
+      expected.remove(id);
+    }
+
+    assertEquals(expected.size(), trie.size());
+    for (var id = 0; id < 5000; id++) {
+      assertEquals(expected.get(id), trie.get(id));
+    }
+    assertEquals(4991, trie.maxKey());
+  }
+}
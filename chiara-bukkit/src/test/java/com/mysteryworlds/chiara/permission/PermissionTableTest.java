@@ -1,6 +1,9 @@
 package com.mysteryworlds.chiara.permission;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -127,6 +130,146 @@ final class PermissionTableTest {
     ));
   }
 
+  @Test
+  void testMergeKeepsSourcesUnchanged() {
+    var defensiveTable = PermissionTable.withPermissions(Map.of(
+      testPermissionAllowed, PermissionStatus.ALLOWED
+    ));
+    var offensiveTable = PermissionTable.withPermissions(Map.of(
+      testPermissionDeclined, PermissionStatus.DECLINED
+    ));
+
+    var mergedTable = defensiveTable.merge(offensiveTable);
+    mergedTable.setStatus(testPermissionNotSet, PermissionStatus.ALLOWED);
+    defensiveTable.setStatus(testPermissionAllowed, PermissionStatus.DECLINED);
+
+    assertEquals(PermissionStatus.ALLOWED, mergedTable.statusOf(
+      testPermissionAllowed
+    ));
+    assertEquals(PermissionStatus.NOT_SET, defensiveTable.statusOf(
+      testPermissionDeclined
+    ));
+    assertEquals(PermissionStatus.NOT_SET, offensiveTable.statusOf(
+      testPermissionNotSet
+    ));
+  }
+
+  @Test
+  void testStatusOfWildcard() {
+    var permissionTable = PermissionTable.withBoolPermissions(Map.of(
+      "epic.*", true,
+      "world.admin.*", true,
+      "world.admin.secret.*", false
+    ));
+
+    assertEquals(PermissionStatus.ALLOWED, permissionTable.statusOf(
+      Permission.of("epic.fly")
+    ));
+    assertEquals(PermissionStatus.ALLOWED, permissionTable.statusOf(
+      Permission.of("world.admin.kick")
+    ));
+    assertEquals(PermissionStatus.DECLINED, permissionTable.statusOf(
+      Permission.of("world.admin.secret.read")
+    ));
+    assertEquals(PermissionStatus.NOT_SET, permissionTable.statusOf(
+      Permission.of("epic")
+    ));
+    assertEquals(PermissionStatus.NOT_SET, permissionTable.statusOf(
+      Permission.of("world.build")
+    ));
+  }
+
+  @Test
+  void testStatusOfExactOverridesWildcard() {
+    var permissionTable = PermissionTable.withBoolPermissions(Map.of(
+      "epic.*", true,
+      "epic.fly", false
+    ));
+
+    assertEquals(PermissionStatus.DECLINED, permissionTable.statusOf(
+      Permission.of("epic.fly")
+    ));
+    assertEquals(PermissionStatus.ALLOWED, permissionTable.statusOf(
+      Permission.of("epic.walk")
+    ));
+  }
+
+  @Test
+  void testSetStatusWildcard() {
+    var permissionTable = PermissionTable.empty();
+    var wildcard = Permission.of("epic.*");
+
+    permissionTable.setStatus(wildcard, PermissionStatus.ALLOWED);
+    assertEquals(PermissionStatus.ALLOWED, permissionTable.statusOf(
+      Permission.of("epic.fly")
+    ));
+
+    permissionTable.setStatus(wildcard, PermissionStatus.NOT_SET);
+    assertEquals(PermissionStatus.NOT_SET, permissionTable.statusOf(
+      Permission.of("epic.fly")
+    ));
+  }
+
+  @Test
+  void testStatusOfLookedUpPermission() {
+    var permissionTable = PermissionTable.withBoolPermissions(Map.of(
+      "lookup.*", true
+    ));
+
+    assertEquals(
+      PermissionStatus.ALLOWED,
+      permissionTable.statusOf("lookup.never.stored")
+    );
+    assertEquals(
+      PermissionStatus.NOT_SET,
+      permissionTable.statusOf("other.never.stored")
+    );
+    assertFalse(Permission.lookup("lookup.never.stored").isInterned());
+  }
+
+  @Test
+  void testSetStatusNotInterned() {
+    var permissionTable = PermissionTable.empty();
+
+    assertThrows(IllegalArgumentException.class, () -> permissionTable
+      .setStatus(Permission.lookup("never.stored"), PermissionStatus.ALLOWED));
+    assertTrue(permissionTable.isEmpty());
+  }
+
+  @Test
+  void testStatusOfWildcardStoredAfterCheck() {
+    var permission = Permission.of("late.wildcard.node");
+    var permissionTable = PermissionTable.empty();
+    assertEquals(
+      PermissionStatus.NOT_SET,
+      permissionTable.statusOf(permission)
+    );
+
+    permissionTable.setStatus(
+      Permission.of("late.wildcard.*"),
+      PermissionStatus.DECLINED
+    );
+    assertEquals(
+      PermissionStatus.DECLINED,
+      permissionTable.statusOf(permission)
+    );
+  }
+
+  @Test
+  void testMergeWildcard() {
+    var defensiveTable = PermissionTable.withBoolPermissions(Map.of(
+      "epic.*", true
+    ));
+    var offensiveTable = PermissionTable.withBoolPermissions(Map.of(
+      "epic.*", false
+    ));
+
+    var mergedTable = defensiveTable.merge(offensiveTable);
+    assertEquals(PermissionStatus.DECLINED, mergedTable.statusOf(
+      Permission.of("epic.fly")
+    ));
+  }
+
   @Test
   void testApply() {
     var permissionTable = PermissionTable.withPermissions(List.of(
@@ -139,7 +282,12 @@ final class PermissionTableTest {
       plugin,
       permissible
     );
-    permissionTable.apply(attachment);
+    PermissionSnapshot.of(permissionTable)
+      .apply(attachment, PermissionSnapshot.empty());
+    assertEquals(
+      Map.of(testPermissionAllowed.name(), true),
+      attachment.getPermissions()
+    );
   }
 
   @Test
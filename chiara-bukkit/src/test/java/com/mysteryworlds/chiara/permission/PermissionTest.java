@@ -1,6 +1,10 @@
 package com.mysteryworlds.chiara.permission;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -26,4 +30,49 @@ final class PermissionTest {
     assertEquals(permission, clonedPermissions);
     assertEquals(permission.hashCode(), clonedPermissions.hashCode());
   }
+
+  @Test
+  void testInterned() {
+    var clonedPermission = Permission.of(TEST_PERMISSION_NAME);
+    assertSame(permission, clonedPermission);
+    assertEquals(permission.id(), clonedPermission.id());
+  }
+
+  @Test
+  void testDistinctIds() {
+    var otherPermission = Permission.of(TEST_PERMISSION_NAME + ".other");
+    assertNotEquals(permission.id(), otherPermission.id());
+    assertSame(otherPermission, Permission.byId(otherPermission.id()));
+  }
+
+  @Test
+  void testLookupInterned() {
+    assertSame(permission, Permission.lookup(TEST_PERMISSION_NAME));
+    assertTrue(permission.isInterned());
+  }
+
+  @Test
+  void testLookupDoesNotIntern() {
+    var checkedPermission = Permission.lookup("test.lookup.only");
+
+    assertFalse(checkedPermission.isInterned());
+    assertFalse(Permission.lookup("test.lookup.only").isInterned());
+    assertFalse(Permission.lookup("test.lookup.*").isInterned());
+    assertSame(checkedPermission, Permission.lookup("test.lookup.other"));
+  }
+
+  @Test
+  void testWildcardIds() {
+    var nodeId = Permission.of("test.wildcard.node.*").id();
+    var rootId = Permission.of("test.*").id();
+
+    var ids = Permission.wildcardIds("test.wildcard.node.leaf");
+    assertEquals(nodeId, ids[0]);
+    assertEquals(rootId, ids[1]);
+
+    var leaf = Permission.of("test.wildcard.leaf");
+    assertEquals(rootId, leaf.wildcardIds()[0]);
+    var parentId = Permission.of("test.wildcard.*").id();
+    assertEquals(parentId, leaf.wildcardIds()[0]);
+  }
 }
@@ -0,0 +1,49 @@
+package com.mysteryworlds.chiara.permission;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+final class WildcardIndexTest {
+  @Test
+  void testMostSpecificFirst() {
+    var all = Permission.of("*");
+    var epic = Permission.of("epic.*");
+    var fly = Permission.of("epic.fly.*");
+    var index = WildcardIndex.of(List.of(all, fly, epic));
+
+    assertArrayEquals(
+      new int[] {fly.id(), epic.id(), all.id()},
+      index.wildcardIds("epic.fly.high")
+    );
+    assertArrayEquals(
+      new int[] {epic.id(), all.id()},
+      index.wildcardIds("epic.walk")
+    );
+    assertArrayEquals(new int[] {all.id()}, index.wildcardIds("epic"));
+    assertArrayEquals(new int[] {all.id()}, index.wildcardIds("other.fly"));
+  }
+
+  @Test
+  void testSegmentsMatchExactly() {
+    var epic = Permission.of("epic.*");
+    var index = WildcardIndex.of(List.of(epic));
+
+    assertArrayEquals(new int[0], index.wildcardIds("epics.fly"));
+    assertArrayEquals(new int[0], index.wildcardIds("epi.fly"));
+    assertArrayEquals(new int[0], index.wildcardIds("fly.epic.high"));
+    assertArrayEquals(new int[] {epic.id()}, index.wildcardIds("epic.*"));
+  }
+
+  @Test
+  void testIdsShared() {
+    var index = WildcardIndex.of(List.of(Permission.of("epic.*")));
+
+    assertSame(
+      index.wildcardIds("epic.fly"),
+      index.wildcardIds("epic.walk.slow")
+    );
+  }
+}
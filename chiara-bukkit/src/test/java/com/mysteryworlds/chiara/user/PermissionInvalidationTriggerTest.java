@@ -0,0 +1,126 @@
+package com.mysteryworlds.chiara.user;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import com.mysteryworlds.chiara.group.GroupTable;
+import com.mysteryworlds.chiara.group.PermissionGroup;
+import com.mysteryworlds.chiara.group.PermissionGroupRepository;
+import com.mysteryworlds.chiara.group.PermissionGroupUpdateEvent;
+import com.mysteryworlds.chiara.group.PermissionGroupUpdateEvent.Change;
+import com.mysteryworlds.chiara.permission.Permission;
+import com.mysteryworlds.chiara.permission.PermissionEntity.Metadata;
+import com.mysteryworlds.chiara.permission.PermissionSnapshot;
+import com.mysteryworlds.chiara.permission.PermissionTable;
+import com.mysteryworlds.chiara.permission.WorldPermissionTable;
+import java.util.List;
+import java.util.UUID;
+import net.milkbowl.vault.chat.Chat;
+import org.bukkit.entity.Player;
+import org.bukkit.permissions.PermissionAttachment;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+final class PermissionInvalidationTriggerTest {
+  private static final Permission GROUP_PERMISSION = Permission
+    .of("group-permission");
+
+  @Mock
+  private Chat chat;
+  @Mock
+  private Plugin plugin;
+  @Mock
+  private PluginManager pluginManager;
+  @Mock
+  private Player player;
+  @Mock
+  private PermissionUserRepository userRepository;
+  @Mock
+  private PermissionGroupRepository groupRepository;
+  @Mock
+  private PermissionGroup adminGroup;
+  @Mock
+  private PermissionGroup moderatorGroup;
+  @Mock
+  private PermissionGroup defaultGroup;
+
+  private PermissionUserSessionRegistry sessionRegistry;
+  private PermissionInvalidationTrigger invalidationTrigger;
+  private PermissionUser user;
+
+  @BeforeEach
+  void setUp() {
+    when(plugin.isEnabled()).thenReturn(true);
+    when(adminGroup.name()).thenReturn("admin");
+    when(moderatorGroup.name()).thenReturn("moderator");
+    sessionRegistry = PermissionUserSessionRegistry.empty();
+    invalidationTrigger = new PermissionInvalidationTrigger(
+      userRepository,
+      groupRepository,
+      sessionRegistry
+    );
+    user = new PermissionUser(
+      UUID.randomUUID(),
+      PermissionTable.empty(),
+      GroupTable.withGroups(adminGroup),
+      WorldPermissionTable.empty(),
+      Metadata.empty(),
+      pluginManager
+    );
+  }
+
+  @Test
+  void testInvalidateIndexedSessions() {
+    when(adminGroup.ancestors()).thenReturn(List.of(moderatorGroup));
+    when(adminGroup.effectivePermissions()).thenReturn(
+      PermissionSnapshot.empty(),
+      PermissionSnapshot.of(PermissionTable.withPermissions(List.of(
+        GROUP_PERMISSION
+      )))
+    );
+    sessionRegistry.register(createSession());
+    assertFalse(user.hasPermission(GROUP_PERMISSION.name()));
+
+    invalidationTrigger.groupUpdate(
+      PermissionGroupUpdateEvent.of(moderatorGroup, Change.PERMISSIONS)
+    );
+    assertTrue(user.hasPermission(GROUP_PERMISSION.name()));
+  }
+
+  @Test
+  void testReindexOnInheritanceChange() {
+    when(defaultGroup.name()).thenReturn("default");
+    when(adminGroup.ancestors()).thenReturn(
+      List.of(moderatorGroup),
+      List.of(moderatorGroup, defaultGroup)
+    );
+    var session = createSession();
+    sessionRegistry.register(session);
+    assertTrue(sessionRegistry.findSessionsByGroup("default").isEmpty());
+
+    invalidationTrigger.groupUpdate(
+      PermissionGroupUpdateEvent.of(moderatorGroup, Change.INHERITANCE)
+    );
+    assertEquals(
+      List.of(session),
+      sessionRegistry.findSessionsByGroup("default")
+    );
+  }
+
+  private PermissionUserSession createSession() {
+    return new PermissionUserSession(
+      chat,
+      player,
+      user,
+      new PermissionAttachment(plugin, player)
+    );
+  }
+}
@@ -0,0 +1,173 @@
+package com.mysteryworlds.chiara.user;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.mysteryworlds.chiara.group.GroupTable;
+import com.mysteryworlds.chiara.permission.Permission;
+import com.mysteryworlds.chiara.permission.PermissionEntity.Metadata;
+import com.mysteryworlds.chiara.permission.PermissionStatus;
+import com.mysteryworlds.chiara.permission.PermissionTable;
+import com.mysteryworlds.chiara.permission.WorldPermissionTable;
+import java.util.UUID;
+import net.milkbowl.vault.chat.Chat;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.permissions.PermissionAttachment;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+final class PermissionRecalculationSchedulerTest {
+  private static final Permission TEST_PERMISSION = Permission
+    .of("test-permission");
+
+  @Mock
+  private Chat chat;
+  @Mock
+  private Plugin plugin;
+  @Mock
+  private PluginManager pluginManager;
+  @Mock
+  private BukkitScheduler scheduler;
+  @Mock
+  private Player player;
+  @Mock
+  private World world;
+
+  private PermissionUser permissionUser;
+  private PermissionUserSession session;
+  private PermissionRecalculationScheduler recalculationScheduler;
+
+  @BeforeEach
+  void setUp() {
+    when(plugin.isEnabled()).thenReturn(true);
+    permissionUser = new PermissionUser(
+      UUID.randomUUID(),
+      PermissionTable.empty(),
+      GroupTable.empty(),
+      WorldPermissionTable.empty(),
+      Metadata.empty(),
+      pluginManager
+    );
+    var sessionRegistry = PermissionUserSessionRegistry.empty();
+    session = new PermissionUserSession(
+      chat,
+      player,
+      permissionUser,
+      new PermissionAttachment(plugin, player)
+    );
+    sessionRegistry.register(session);
+    recalculationScheduler = new PermissionRecalculationScheduler(
+      plugin,
+      scheduler,
+      sessionRegistry,
+      Runnable::run,
+      Runnable::run,
+      1
+    );
+  }
+
+  private void stubNaming() {
+    when(player.getName()).thenReturn("TestPlayer");
+    when(chat.getPlayerPrefix(player)).thenReturn("&c");
+    when(chat.getPlayerSuffix(player)).thenReturn("");
+  }
+
+  @Test
+  void testFlushCoalescesChanges() {
+    stubNaming();
+    when(player.getWorld()).thenReturn(world);
+    when(world.getName()).thenReturn("world");
+
+    recalculationScheduler.markDirty(permissionUser.id());
+    permissionUser
+      .setPermissionStatus(TEST_PERMISSION, PermissionStatus.ALLOWED);
+    recalculationScheduler.markDirty(permissionUser.id());
+    recalculationScheduler.flush();
+
+    verify(player, times(1)).recalculatePermissions();
+  }
+
+  @Test
+  void testFlushRefreshesNamingOnChange() {
+    stubNaming();
+    when(player.getWorld()).thenReturn(world);
+    when(world.getName()).thenReturn("world");
+
+    recalculationScheduler.markDirty(permissionUser.id());
+    recalculationScheduler.flush();
+    recalculationScheduler.markDirty(permissionUser.id());
+    recalculationScheduler.flush();
+    verify(player, times(1)).setPlayerListName("\u00a7cTestPlayer");
+
+    when(chat.getPlayerPrefix(player)).thenReturn("&a");
+    recalculationScheduler.markDirty(permissionUser.id());
+    recalculationScheduler.flush();
+    verify(player, times(1)).setPlayerListName("\u00a7aTestPlayer");
+  }
+
+  @Test
+  void testFlushWithoutChanges() {
+    recalculationScheduler.flush();
+
+    verify(player, never()).recalculatePermissions();
+  }
+
+  @Test
+  void testSupersededCalculationSkipped() {
+    when(player.getWorld()).thenReturn(world);
+    when(world.getName()).thenReturn("world");
+    permissionUser
+      .setPermissionStatus(TEST_PERMISSION, PermissionStatus.ALLOWED);
+
+    var calculation = session.beginCalculation();
+    calculation.calculate();
+    permissionUser
+      .setPermissionStatus(TEST_PERMISSION, PermissionStatus.DECLINED);
+    session.recalculatePermissions();
+    calculation.apply();
+
+    verify(player, times(1)).recalculatePermissions();
+  }
+
+  @Test
+  void testFailedCalculationSkipped() {
+    stubNaming();
+    when(player.getWorld()).thenReturn(world);
+
+    recalculationScheduler.markDirty(permissionUser.id());
+    recalculationScheduler.flush();
+    verify(player, never()).recalculatePermissions();
+
+    when(world.getName()).thenReturn("world");
+    permissionUser
+      .setPermissionStatus(TEST_PERMISSION, PermissionStatus.ALLOWED);
+    recalculationScheduler.markDirty(permissionUser.id());
+    recalculationScheduler.flush();
+    verify(player, times(1)).recalculatePermissions();
+  }
+
+  @Test
+  void testScheduleFailureRetried() {
+    when(scheduler.runTaskLater(eq(plugin), any(Runnable.class), anyLong()))
+      .thenThrow(new IllegalStateException("Plugin disabled"));
+
+    recalculationScheduler.markDirty(permissionUser.id());
+    recalculationScheduler.markDirty(permissionUser.id());
+
+    verify(scheduler, times(2))
+      .runTaskLater(eq(plugin), any(Runnable.class), anyLong());
+  }
+}
@@ -0,0 +1,340 @@
+package com.mysteryworlds.chiara.user;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.mysteryworlds.chiara.group.PermissionGroup;
+import com.mysteryworlds.chiara.group.PermissionGroupRepository;
+import com.mysteryworlds.chiara.group.PermissionGroupUpdateEvent;
+import com.mysteryworlds.chiara.group.PermissionGroupUpdateEvent.Change;
+import com.mysteryworlds.chiara.permission.Permission;
+import com.mysteryworlds.chiara.permission.PermissionSnapshot;
+import com.mysteryworlds.chiara.permission.PermissionStatus;
+import com.mysteryworlds.chiara.permission.PermissionTable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.plugin.PluginManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+final class PermissionUserRepositoryTest {
+  private static final Permission TEST_PERMISSION = Permission
+    .of("test-permission");
+  private static final Permission GROUP_PERMISSION = Permission
+    .of("group-permission");
+  private static final UUID FIRST_USER_ID = UUID
+    .fromString("6e8f5a4b-6a3c-4f0e-9d3b-2f1c7a9e0b11");
+  private static final UUID SECOND_USER_ID = UUID
+    .fromString("0b5d2c7e-1f4a-4e8b-a6c9-3d7e8f9a1c22");
+
+  @Mock
+  private PluginManager pluginManager;
+  @Mock
+  private OfflinePlayer offlinePlayer;
+  @Mock
+  private PermissionGroupRepository groupRepository;
+  @Mock
+  private PermissionGroup defaultGroup;
+  @Mock
+  private PermissionGroup moderatorGroup;
+  @Mock
+  private PermissionGroup adminGroup;
+  @TempDir
+  Path tempDir;
+
+  private Path usersPath;
+  private Path usersFolder;
+
+  @BeforeEach
+  void setUp() {
+    usersPath = tempDir.resolve("users.yml");
+    usersFolder = tempDir.resolve("users");
+  }
+
+  private void stubDefaultGroup() {
+    when(groupRepository.findGroup("default"))
+      .thenReturn(Optional.of(defaultGroup));
+    when(defaultGroup.name()).thenReturn("default");
+  }
+
+  @Test
+  void testAutosaveWritesChangedUsers() {
+    stubDefaultGroup();
+    var userRepository = createRepository(10);
+    userRepository.load();
+    var user = userRepository.findOrCreateUser(FIRST_USER_ID);
+    userRepository.findOrCreateUser(SECOND_USER_ID);
+    user.setPermissionStatus(TEST_PERMISSION, PermissionStatus.ALLOWED);
+    userRepository.markDirty(user);
+    userRepository.autosave().join();
+
+    assertTrue(Files.exists(userPath(FIRST_USER_ID)));
+    assertFalse(Files.exists(userPath(SECOND_USER_ID)));
+
+    var reloadedRepository = createRepository(10);
+    reloadedRepository.load();
+    var reloadedUser = reloadedRepository.findUser(FIRST_USER_ID)
+      .orElseThrow();
+    assertEquals(
+      Map.of("test-permission", true),
+      reloadedUser.basePermissions().asMap()
+    );
+    assertEquals(List.of(defaultGroup), reloadedUser.groupsInOrder());
+    assertTrue(reloadedRepository.findUser(SECOND_USER_ID).isEmpty());
+  }
+
+  @Test
+  void testFindUserWithoutFile() {
+    var userRepository = createRepository(10);
+    userRepository.load();
+
+    assertTrue(userRepository.findUser(FIRST_USER_ID).isEmpty());
+    assertFalse(Files.exists(userPath(FIRST_USER_ID)));
+  }
+
+  @Test
+  void testEvictedUserWrittenBack() {
+    stubDefaultGroup();
+    var userRepository = createRepository(1);
+    userRepository.load();
+    var user = userRepository.findOrCreateUser(FIRST_USER_ID);
+    user.setPermissionStatus(TEST_PERMISSION, PermissionStatus.DECLINED);
+    userRepository.markDirty(user);
+    userRepository.findOrCreateUser(SECOND_USER_ID);
+
+    assertTrue(Files.exists(userPath(FIRST_USER_ID)));
+    var reloadedUser = userRepository.findUser(FIRST_USER_ID).orElseThrow();
+    assertEquals(
+      Map.of("test-permission", false),
+      reloadedUser.basePermissions().asMap()
+    );
+  }
+
+  @Test
+  void testEvictedUserInvalidatedOnGroupUpdate() {
+    stubDefaultGroup();
+    when(defaultGroup.effectivePermissions()).thenReturn(
+      PermissionSnapshot.empty(),
+      PermissionSnapshot.of(PermissionTable.withPermissions(List.of(
+        GROUP_PERMISSION
+      )))
+    );
+    List<Runnable> pendingWrites = new ArrayList<>();
+    var userRepository = createRepository(1, pendingWrites::add);
+    var invalidationTrigger = new PermissionInvalidationTrigger(
+      userRepository,
+      groupRepository,
+      PermissionUserSessionRegistry.empty()
+    );
+    userRepository.load();
+    var user = userRepository.findOrCreateUser(FIRST_USER_ID);
+    userRepository.markDirty(user);
+    assertFalse(user.hasPermission(GROUP_PERMISSION.name()));
+    userRepository.findOrCreateUser(SECOND_USER_ID);
+
+    invalidationTrigger.groupUpdate(
+      PermissionGroupUpdateEvent.of(defaultGroup, Change.PERMISSIONS)
+    );
+    var reloadedUser = userRepository.findUser(FIRST_USER_ID).orElseThrow();
+    assertSame(user, reloadedUser);
+    assertTrue(reloadedUser.hasPermission(GROUP_PERMISSION.name()));
+    pendingWrites.forEach(Runnable::run);
+    assertTrue(Files.exists(userPath(FIRST_USER_ID)));
+  }
+
+  @Test
+  void testSaveKeepsGroupOrder() {
+    stubDefaultGroup();
+    when(groupRepository.findGroup("moderator"))
+      .thenReturn(Optional.of(moderatorGroup));
+    when(moderatorGroup.name()).thenReturn("moderator");
+    when(groupRepository.findGroup("admin"))
+      .thenReturn(Optional.of(adminGroup));
+    when(adminGroup.name()).thenReturn("admin");
+    var userRepository = createRepository(10);
+    userRepository.load();
+    var user = userRepository.findOrCreateUser(FIRST_USER_ID);
+    user.addGroup(moderatorGroup);
+    user.addGroup(adminGroup);
+    user.removeGroup(defaultGroup);
+    user.addGroup(defaultGroup);
+    userRepository.markDirty(user);
+    userRepository.save().join();
+
+    var reloadedRepository = createRepository(10);
+    reloadedRepository.load();
+    assertEquals(
+      List.of(moderatorGroup, adminGroup, defaultGroup),
+      reloadedRepository.findUser(FIRST_USER_ID).orElseThrow().groupsInOrder()
+    );
+  }
+
+  @Test
+  void testMigrateUsersConfig() throws IOException {
+    stubDefaultGroup();
+    when(groupRepository.findGroup("admin"))
+      .thenReturn(Optional.of(adminGroup));
+    writeUsersConfig();
+    var userRepository = createRepository(10);
+    userRepository.load();
+
+    assertFalse(Files.exists(usersPath));
+    assertTrue(Files.exists(tempDir.resolve("users.yml.migrated")));
+    var firstUser = userRepository.findUser(FIRST_USER_ID).orElseThrow();
+    assertEquals(List.of(adminGroup), firstUser.groupsInOrder());
+    var secondUser = userRepository.findUser(SECOND_USER_ID).orElseThrow();
+    assertEquals(
+      Map.of("test-permission", true),
+      secondUser.basePermissions().asMap()
+    );
+
+    secondUser.setPermissionStatus(TEST_PERMISSION, PermissionStatus.DECLINED);
+    userRepository.markDirty(secondUser);
+    userRepository.save().join();
+    var reloadedRepository = createRepository(10);
+    reloadedRepository.load();
+    assertEquals(
+      Map.of("test-permission", false),
+      reloadedRepository.findUser(SECOND_USER_ID).orElseThrow()
+        .basePermissions().asMap()
+    );
+  }
+
+  @Test
+  void testMigrateUsersConfigFailure() throws IOException {
+    writeUsersConfig();
+    // A directory in place of the user file can't be replaced.
+    Files.createDirectories(userPath(SECOND_USER_ID).resolve("blocked"));
+    var userRepository = createRepository(10);
+
+    assertThrows(UncheckedIOException.class, userRepository::load);
+    assertTrue(Files.exists(usersPath));
+    assertFalse(Files.exists(tempDir.resolve("users.yml.migrated")));
+  }
+
+  @Test
+  void testFindUserIdFromIndex() {
+    var userRepository = createRepository(10);
+    userRepository.load();
+    userRepository.updateUserName(FIRST_USER_ID, "Notch");
+
+    try (var bukkit = mockStatic(Bukkit.class)) {
+      assertEquals(FIRST_USER_ID, userRepository.findUserId("notch"));
+      assertEquals(FIRST_USER_ID, userRepository.findUserId("NOTCH"));
+      bukkit.verifyNoInteractions();
+    }
+  }
+
+  @Test
+  void testFindUserIdFallback() {
+    when(offlinePlayer.getUniqueId()).thenReturn(SECOND_USER_ID);
+    var userRepository = createRepository(10);
+    userRepository.load();
+    userRepository.updateUserName(FIRST_USER_ID, "Notch");
+
+    try (var bukkit = mockStatic(Bukkit.class)) {
+      bukkit.when(() -> Bukkit.getOfflinePlayer("Dinnerbone"))
+        .thenReturn(offlinePlayer);
+      assertEquals(SECOND_USER_ID, userRepository.findUserId("Dinnerbone"));
+    }
+  }
+
+  @Test
+  void testUpdateUserNameOnRename() {
+    var userRepository = createRepository(10);
+    userRepository.load();
+    userRepository.updateUserName(FIRST_USER_ID, "Notch");
+    userRepository.updateUserName(FIRST_USER_ID, "Jeb");
+    // The old name is taken over by another player.
+    userRepository.updateUserName(SECOND_USER_ID, "notch");
+
+    assertEquals(FIRST_USER_ID, userRepository.findUserId("Jeb"));
+    assertEquals(SECOND_USER_ID, userRepository.findUserId("Notch"));
+  }
+
+  @Test
+  void testUserNamesSnapshotRoundTrip() {
+    var userRepository = createRepository(10, Runnable::run, true);
+    userRepository.load();
+    userRepository.updateUserName(FIRST_USER_ID, "Notch");
+    userRepository.updateUserName(SECOND_USER_ID, "Jeb");
+    userRepository.save().join();
+
+    assertTrue(Files.exists(tempDir.resolve("user-names.yml")));
+    assertTrue(Files.exists(tempDir.resolve("user-names.yml.snapshot")));
+    var reloadedRepository = createRepository(10, Runnable::run, true);
+    reloadedRepository.load();
+    assertEquals(FIRST_USER_ID, reloadedRepository.findUserId("notch"));
+    assertEquals(SECOND_USER_ID, reloadedRepository.findUserId("jeb"));
+  }
+
+  private void writeUsersConfig() throws IOException {
+    Files.writeString(usersPath, String.join("\n",
+      "users:",
+      "  " + FIRST_USER_ID + ":",
+      "    groups:",
+      "      - admin",
+      "  " + SECOND_USER_ID + ":",
+      "    permissions:",
+      "      test-permission: true",
+      "    groups:",
+      "      - default"
+    ));
+  }
+
+  private Path userPath(UUID userId) {
+    return usersFolder.resolve(userId + ".yml");
+  }
+
+  private PermissionUserRepository createRepository(long offlineUserCacheSize) {
+    return createRepository(offlineUserCacheSize, Runnable::run);
+  }
+
+  private PermissionUserRepository createRepository(
+    long offlineUserCacheSize,
+    Executor saveExecutor
+  ) {
+    return createRepository(offlineUserCacheSize, saveExecutor, false);
+  }
+
+  private PermissionUserRepository createRepository(
+    long offlineUserCacheSize,
+    Executor saveExecutor,
+    boolean configSnapshots
+  ) {
+    return new PermissionUserRepository(
+      "default",
+      groupRepository,
+      new PermissionUserFactory(pluginManager, groupRepository),
+      new ObjectMapper(new YAMLFactory()),
+      usersPath,
+      usersFolder,
+      tempDir.resolve("user-names.yml"),
+      saveExecutor,
+      offlineUserCacheSize,
+      configSnapshots
+    );
+  }
+}
@@ -0,0 +1,148 @@
+package com.mysteryworlds.chiara.user;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import com.mysteryworlds.chiara.group.GroupTable;
+import com.mysteryworlds.chiara.group.PermissionGroup;
+import com.mysteryworlds.chiara.permission.PermissionEntity.Metadata;
+import com.mysteryworlds.chiara.permission.PermissionTable;
+import com.mysteryworlds.chiara.permission.WorldPermissionTable;
+import java.util.List;
+import java.util.UUID;
+import net.milkbowl.vault.chat.Chat;
+import org.bukkit.entity.Player;
+import org.bukkit.permissions.PermissionAttachment;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+final class PermissionUserSessionRegistryTest {
+  @Mock
+  private Chat chat;
+  @Mock
+  private Plugin plugin;
+  @Mock
+  private PluginManager pluginManager;
+  @Mock
+  private Player adminPlayer;
+  @Mock
+  private Player defaultPlayer;
+  @Mock
+  private PermissionGroup adminGroup;
+  @Mock
+  private PermissionGroup moderatorGroup;
+  @Mock
+  private PermissionGroup defaultGroup;
+
+  private PermissionUserSessionRegistry sessionRegistry;
+  private PermissionUserSession adminSession;
+  private PermissionUserSession defaultSession;
+
+  @BeforeEach
+  void setUp() {
+    when(plugin.isEnabled()).thenReturn(true);
+    when(adminGroup.name()).thenReturn("admin");
+    when(adminGroup.ancestors()).thenReturn(List.of(moderatorGroup));
+    when(moderatorGroup.name()).thenReturn("moderator");
+    when(defaultGroup.name()).thenReturn("default");
+    sessionRegistry = PermissionUserSessionRegistry.empty();
+    adminSession = createSession(adminPlayer, adminGroup);
+    defaultSession = createSession(defaultPlayer, defaultGroup);
+    sessionRegistry.register(adminSession);
+    sessionRegistry.register(defaultSession);
+  }
+
+  @Test
+  void testFindSessionsByGroup() {
+    assertEquals(
+      List.of(adminSession),
+      sessionRegistry.findSessionsByGroup("admin")
+    );
+    assertEquals(
+      List.of(adminSession),
+      sessionRegistry.findSessionsByGroup("moderator")
+    );
+    assertEquals(
+      List.of(defaultSession),
+      sessionRegistry.findSessionsByGroup("default")
+    );
+    assertTrue(sessionRegistry.findSessionsByGroup("unknown").isEmpty());
+  }
+
+  @Test
+  void testReindexAfterGroupChange() {
+    var user = defaultSession.user();
+    user.addGroup(adminGroup);
+    user.removeGroup(defaultGroup);
+    assertEquals(
+      List.of(defaultSession),
+      sessionRegistry.findSessionsByGroup("default")
+    );
+
+    sessionRegistry.reindex(defaultSession);
+    assertTrue(sessionRegistry.findSessionsByGroup("default").isEmpty());
+    assertEquals(2, sessionRegistry.findSessionsByGroup("admin").size());
+    assertTrue(sessionRegistry.findSessionsByGroup("moderator")
+      .contains(defaultSession));
+  }
+
+  @Test
+  void testRemoveByUserUnindexes() {
+    sessionRegistry.removeByUser(adminSession.user().id());
+
+    assertTrue(sessionRegistry.findSessionsByGroup("admin").isEmpty());
+    assertTrue(sessionRegistry.findSessionsByGroup("moderator").isEmpty());
+    assertEquals(
+      List.of(defaultSession),
+      sessionRegistry.findSessionsByGroup("default")
+    );
+  }
+
+  @Test
+  void testRegisterReplacesSession() {
+    var user = defaultSession.user();
+    user.addGroup(adminGroup);
+    var replacingSession = new PermissionUserSession(
+      chat,
+      defaultPlayer,
+      user,
+      new PermissionAttachment(plugin, defaultPlayer)
+    );
+    sessionRegistry.register(replacingSession);
+
+    assertEquals(
+      List.of(replacingSession),
+      sessionRegistry.findSessionsByGroup("default")
+    );
+    assertEquals(2, sessionRegistry.findSessionsByGroup("moderator").size());
+    assertTrue(sessionRegistry.findSessionsByGroup("moderator")
+      .contains(adminSession));
+  }
+
+  private PermissionUserSession createSession(
+    Player player,
+    PermissionGroup group
+  ) {
+    var user = new PermissionUser(
+      UUID.randomUUID(),
+      PermissionTable.empty(),
+      GroupTable.withGroups(group),
+      WorldPermissionTable.empty(),
+      Metadata.empty(),
+      pluginManager
+    );
+    return new PermissionUserSession(
+      chat,
+      player,
+      user,
+      new PermissionAttachment(plugin, player)
+    );
+  }
+}
@@ -2,6 +2,8 @@ package com.mysteryworlds.chiara.user;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.mysteryworlds.chiara.group.GroupTable;
@@ -10,6 +12,7 @@ import com.mysteryworlds.chiara.permission.PermissionEntity.Metadata;
 import com.mysteryworlds.chiara.permission.PermissionStatus;
 import com.mysteryworlds.chiara.permission.PermissionTable;
 import com.mysteryworlds.chiara.permission.WorldPermissionTable;
+import java.util.List;
 import java.util.UUID;
 import org.bukkit.plugin.PluginManager;
 import org.junit.jupiter.api.BeforeEach;
@@ -91,4 +94,52 @@ final class PermissionUserTest {
       .hasPermission(TEST_PERMISSION.name(), TEST_WORLD);
     assertTrue(hasPermission);
   }
+
+  @Test
+  void testEffectivePermissionsCached() {
+    var effectivePermissions = permissionUser
+      .effectivePermissions(TEST_WORLD);
+    assertSame(effectivePermissions,
+      permissionUser.effectivePermissions(TEST_WORLD));
+  }
+
+  @Test
+  void testEffectivePermissionsInvalidated() {
+    var effectivePermissions = permissionUser
+      .effectivePermissions(TEST_WORLD);
+
+    permissionUser.setWorldPermissionStatus(TEST_PERMISSION,
+      PermissionStatus.ALLOWED, TEST_WORLD);
+    var changedPermissions = permissionUser.effectivePermissions(TEST_WORLD);
+
+    assertNotSame(effectivePermissions, changedPermissions);
+    assertEquals(PermissionStatus.ALLOWED,
+      changedPermissions.statusOf(TEST_PERMISSION));
+  }
+
+  @Test
+  void testMetadataSnapshot() {
+    permissionUser.metadata("prefix", "[Admin]");
+    var metadata = permissionUser.metadata();
+
+    permissionUser.metadata("prefix", "[Mod]");
+    assertEquals("[Admin]", metadata.get("prefix"));
+    assertEquals("[Mod]", permissionUser.metadata("prefix").orElseThrow());
+  }
+
+  @Test
+  void testHasPermissionsBatch() {
+    permissionUser
+      .setPermissionStatus(TEST_PERMISSION, PermissionStatus.ALLOWED);
+    permissionUser.setWorldPermissionStatus(TEST_PERMISSION,
+      PermissionStatus.DECLINED, TEST_WORLD);
+    var permissions = List.of("unknown", TEST_PERMISSION.name());
+
+    var result = permissionUser.hasPermissions(permissions);
+    assertFalse(result.get(0));
+    assertTrue(result.get(1));
+
+    var worldResult = permissionUser.hasPermissions(permissions, TEST_WORLD);
+    assertTrue(worldResult.isEmpty());
+  }
 }